@@ -0,0 +1,32 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.api;
+
+/**
+ * Defines from which email an IMAP listener starts polling a folder the first time it polls it, when it has no stored position
+ * for that folder yet.
+ *
+ * @since 2.0
+ */
+public enum StartPosition {
+
+  /**
+   * Scans all the emails of the folder.
+   */
+  ALL,
+
+  /**
+   * Skips all the emails that are in the folder when it is polled for the first time and only dispatches the ones that arrive
+   * afterwards.
+   */
+  FROM_NOW,
+
+  /**
+   * Skips the emails received before the configured start date.
+   */
+  FROM_DATE
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.api;
+
+/**
+ * Defines how an IMAP listener resumes polling a folder when the UIDVALIDITY of the folder changed, which means that the UIDs
+ * of its emails were reassigned by the server and the position stored by the listener is no longer valid.
+ *
+ * @since 2.0
+ */
+public enum UIDValidityResyncPolicy {
+
+  /**
+   * Scans all the emails of the folder again. Emails are still subject to the matcher and, if enabled, to the watermark.
+   */
+  RESCAN,
+
+  /**
+   * Skips all the emails that are in the folder at the moment the change is detected and only dispatches the ones that arrive
+   * afterwards.
+   */
+  SKIP_EXISTING
+}
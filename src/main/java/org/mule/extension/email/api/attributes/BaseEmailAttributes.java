@@ -119,10 +119,29 @@ public abstract class BaseEmailAttributes implements Serializable {
   @Optional
   private final LocalDateTime sentDate;
 
+  /**
+   * The size of the email in bytes, or -1 if it is unknown.
+   */
+  @Parameter
+  @Optional(defaultValue = "-1")
+  private final int size;
+
   public BaseEmailAttributes(Message msg) {
+    this(msg, true);
+  }
+
+  /**
+   * @param msg            the email.
+   * @param includeHeaders whether all the headers of the email are included, which requires downloading them if they were not
+   *                       fetched yet. If false, the attributes only carry the envelope of the email and no headers.
+   * @since 2.0
+   */
+  protected BaseEmailAttributes(Message msg, boolean includeHeaders) {
     try {
       Map<String, String> headers = new HashMap<>();
-      list(msg.getAllHeaders()).forEach(h -> headers.put(h.getName(), h.getValue()));
+      if (includeHeaders) {
+        list(msg.getAllHeaders()).forEach(h -> headers.put(h.getName(), h.getValue()));
+      }
 
       this.number = msg.getMessageNumber();
       this.subject = msg.getSubject();
@@ -134,6 +153,7 @@ public abstract class BaseEmailAttributes implements Serializable {
       this.sentDate = asDateTime(msg.getSentDate());
       this.receivedDate = asDateTime(msg.getReceivedDate());
       this.fromAddresses = addressesAsList(msg.getFrom());
+      this.size = msg.getSize();
     } catch (MessagingException mse) {
       throw new CannotFetchMetadataException(mse.getMessage(), mse);
     }
@@ -221,6 +241,13 @@ public abstract class BaseEmailAttributes implements Serializable {
     return sentDate;
   }
 
+  /**
+   * @return the size of the email in bytes, or -1 if it is unknown.
+   */
+  public int getSize() {
+    return size;
+  }
+
   /**
    * @return all the headers of this email message.
    */
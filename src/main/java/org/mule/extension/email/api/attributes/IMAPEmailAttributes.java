@@ -38,9 +38,26 @@ public class IMAPEmailAttributes extends BaseEmailAttributes {
   @Parameter
   private final String id;
 
+  /**
+   * The full name of the IMAP mailbox folder the email was retrieved from.
+   */
+  @Parameter
+  private final String folder;
+
   public IMAPEmailAttributes(Message msg, IMAPFolder folder) {
-    super(msg);
+    this(msg, folder, true);
+  }
+
+  /**
+   * @param msg            the email.
+   * @param folder         the folder the email belongs to.
+   * @param includeHeaders whether all the headers of the email are included, or only its envelope and flags.
+   * @since 2.0
+   */
+  public IMAPEmailAttributes(Message msg, IMAPFolder folder, boolean includeHeaders) {
+    super(msg, includeHeaders);
     try {
+      this.folder = folder.getFullName();
       this.id = Long.toString(folder.getUID(msg));
       this.flags = new EmailFlags(msg.getFlags());
     } catch (MessagingException mse) {
@@ -62,4 +79,11 @@ public class IMAPEmailAttributes extends BaseEmailAttributes {
     return id;
   }
 
+  /**
+   * @return the full name of the folder the email was retrieved from.
+   */
+  public String getFolder() {
+    return folder;
+  }
+
 }
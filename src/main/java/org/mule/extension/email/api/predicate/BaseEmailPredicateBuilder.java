@@ -6,15 +6,27 @@
  */
 package org.mule.extension.email.api.predicate;
 
+import static java.util.Collections.singletonList;
 import static java.util.regex.Pattern.compile;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.COMPARISONS;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.FLAGS;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.LITERALS;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.REGEX;
+import static org.mule.extension.email.internal.util.RegexLiterals.requiredLiteral;
 import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.internal.util.CompiledEmailPredicate;
 import org.mule.extension.email.internal.util.TimeSinceFunction;
 import org.mule.extension.email.internal.util.TimeUntilFunction;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 /**
  * Base builder class for {@link Predicate}s that verify that a {@link BaseEmailAttributes} instance is compliant with a number of
@@ -81,45 +93,175 @@ public abstract class BaseEmailPredicateBuilder {
   @Optional
   private String fromRegex;
 
+  /**
+   * "To" Recipient Email Address Regex to match with the wanted emails
+   */
+  @Parameter
+  @Optional
+  private String toRegex;
+
+  /**
+   * "Cc" Recipient Email Address Regex to match with the wanted emails
+   */
+  @Parameter
+  @Optional
+  private String ccRegex;
+
+  /**
+   * Headers that the wanted emails must carry, by header name, with a value that matches the given regex. Header names are case
+   * insensitive.
+   */
+  @Parameter
+  @Optional
+  private Map<String, String> headerRegexes;
+
+  /**
+   * Minimum size in bytes of the wanted emails
+   */
+  @Parameter
+  @Optional
+  private Integer minSize;
+
+  /**
+   * Maximum size in bytes of the wanted emails
+   */
+  @Parameter
+  @Optional
+  private Integer maxSize;
+
+  /**
+   * The predicate built from the current criterias, or {@code null} if it was not built yet or the criterias changed.
+   */
+  private Predicate<BaseEmailAttributes> compiledPredicate;
+
+  /**
+   * The predicate built from the current criterias that do not require the headers of the emails, or {@code null} if it was not
+   * built yet or the criterias changed.
+   */
+  private Predicate<BaseEmailAttributes> compiledEnvelopePredicate;
+
   /**
    * Builds a {@link Predicate} from the criterias in {@code this} builder's state.
+   * <p>
+   * The criterias are compiled into a single predicate that evaluates the cheapest ones first: the base predicate, then the date
+   * and size bounds, then the literals that the values matched by the regular expressions must contain, and finally the regular
+   * expressions. The compiled predicate is reused until a criteria is changed through a setter.
    *
    * @return a {@link Predicate}
    */
   public Predicate<BaseEmailAttributes> build() {
-    Predicate<? extends BaseEmailAttributes> predicate = getBasePredicate();
+    if (compiledPredicate == null) {
+      compiledPredicate = compile(true);
+    }
+    return compiledPredicate;
+  }
 
-    if (subjectRegex != null) {
-      Predicate<String> subjectPredicate = compile(subjectRegex).asPredicate();
-      predicate = predicate.and(attributes -> subjectPredicate.test(attributes.getSubject()));
+  /**
+   * Builds a {@link Predicate} from the criterias in {@code this} builder's state that can be evaluated without the headers of
+   * the emails, which is met by every email that meets the predicate returned by {@link #build()}.
+   *
+   * @return a {@link Predicate} that does not evaluate the headers of the emails.
+   * @since 2.0
+   */
+  public Predicate<BaseEmailAttributes> buildEnvelopePredicate() {
+    if (compiledEnvelopePredicate == null) {
+      compiledEnvelopePredicate = requiresHeaders() ? compile(false) : build();
     }
+    return compiledEnvelopePredicate;
+  }
+
+  /**
+   * @return whether the predicate returned by {@link #build()} evaluates the headers of the emails.
+   * @since 2.0
+   */
+  public boolean requiresHeaders() {
+    return headerRegexes != null && !headerRegexes.isEmpty();
+  }
+
+  private Predicate<BaseEmailAttributes> compile(boolean includeHeaders) {
+    CompiledEmailPredicate.Builder builder = CompiledEmailPredicate.builder();
+    builder.add(FLAGS, (Predicate<BaseEmailAttributes>) getBasePredicate());
 
-    if (fromRegex != null) {
-      Predicate<String> fromPredicate = compile(fromRegex).asPredicate();
-      predicate = predicate.and(attributes -> attributes.getFromAddresses().stream().anyMatch(fromPredicate));
+    LocalDateTime receivedSince = this.receivedSince;
+    LocalDateTime receivedUntil = this.receivedUntil;
+    if (receivedSince != null || receivedUntil != null) {
+      builder.add(COMPARISONS, attributes -> isWithin(attributes.getReceivedDate(), receivedSince, receivedUntil));
     }
 
-    if (receivedSince != null) {
-      predicate = predicate.and(attributes -> attributes.getReceivedDate() != null
-          && TIME_SINCE.apply(receivedSince, attributes.getReceivedDate()));
+    LocalDateTime sentSince = this.sentSince;
+    LocalDateTime sentUntil = this.sentUntil;
+    if (sentSince != null || sentUntil != null) {
+      builder.add(COMPARISONS, attributes -> isWithin(attributes.getSentDate(), sentSince, sentUntil));
     }
 
-    if (receivedUntil != null) {
-      predicate = predicate.and(attributes -> attributes.getReceivedDate() != null
-          && TIME_UNTIL.apply(receivedUntil, attributes.getReceivedDate()));
+    long minSize = this.minSize != null ? this.minSize : Long.MIN_VALUE;
+    long maxSize = this.maxSize != null ? this.maxSize : Long.MAX_VALUE;
+    if (this.minSize != null || this.maxSize != null) {
+      builder.add(COMPARISONS, attributes -> attributes.getSize() < 0
+          || (attributes.getSize() >= minSize && attributes.getSize() <= maxSize));
     }
 
-    if (sentSince != null) {
-      predicate =
-          predicate.and(attributes -> attributes.getSentDate() != null && TIME_SINCE.apply(sentSince, attributes.getSentDate()));
+    addRegex(builder, subjectRegex, attributes -> singletonList(attributes.getSubject()));
+    addRegex(builder, fromRegex, BaseEmailAttributes::getFromAddresses);
+    addRegex(builder, toRegex, BaseEmailAttributes::getToAddresses);
+    addRegex(builder, ccRegex, BaseEmailAttributes::getCcAddresses);
+    if (includeHeaders && headerRegexes != null) {
+      for (Map.Entry<String, String> headerRegex : headerRegexes.entrySet()) {
+        String name = headerRegex.getKey();
+        String valueRegex = headerRegex.getValue() != null ? headerRegex.getValue() : "";
+        addRegex(builder, valueRegex, attributes -> getHeaderValues(attributes, name));
+      }
     }
 
-    if (sentUntil != null) {
-      predicate =
-          predicate.and(attributes -> attributes.getSentDate() != null && TIME_UNTIL.apply(sentUntil, attributes.getSentDate()));
+    return builder.build();
+  }
+
+  /**
+   * Adds the conditions that require any of the values of an email to match the given {@code regex}. If the regex requires a
+   * literal, a cheaper condition that discards the emails whose values do not contain it is also added.
+   */
+  private void addRegex(CompiledEmailPredicate.Builder builder, String regex,
+                        Function<BaseEmailAttributes, List<String>> values) {
+    if (regex == null) {
+      return;
+    }
+    String literal = requiredLiteral(regex);
+    if (literal != null) {
+      builder.add(LITERALS, attributes -> anyValue(values.apply(attributes), value -> value.contains(literal)));
     }
+    Pattern pattern = compile(regex);
+    builder.add(REGEX, attributes -> anyValue(values.apply(attributes), value -> pattern.matcher(value).find()));
+  }
 
-    return (Predicate<BaseEmailAttributes>) predicate;
+  private static boolean anyValue(List<String> values, Predicate<String> predicate) {
+    for (String value : values) {
+      if (value != null && predicate.test(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static List<String> getHeaderValues(BaseEmailAttributes attributes, String name) {
+    List<String> values = new ArrayList<>(1);
+    for (Map.Entry<String, String> header : attributes.getHeaders().entrySet()) {
+      if (name.equalsIgnoreCase(header.getKey())) {
+        values.add(header.getValue());
+      }
+    }
+    return values;
+  }
+
+  private static boolean isWithin(LocalDateTime date, LocalDateTime since, LocalDateTime until) {
+    return date != null && (since == null || TIME_SINCE.apply(since, date)) && (until == null || TIME_UNTIL.apply(until, date));
+  }
+
+  /**
+   * Discards the predicate built from the previous criterias, so it is built again with the current ones.
+   */
+  protected final void invalidatePredicate() {
+    compiledPredicate = null;
+    compiledEnvelopePredicate = null;
   }
 
   public LocalDateTime getReceivedSince() {
@@ -146,37 +288,93 @@ public abstract class BaseEmailPredicateBuilder {
     return fromRegex;
   }
 
+  public String getToRegex() {
+    return toRegex;
+  }
+
+  public String getCcRegex() {
+    return ccRegex;
+  }
+
+  public Map<String, String> getHeaderRegexes() {
+    return headerRegexes;
+  }
+
+  public Integer getMinSize() {
+    return minSize;
+  }
+
+  public Integer getMaxSize() {
+    return maxSize;
+  }
+
   protected Predicate<? extends BaseEmailAttributes> getBasePredicate() {
     return emailAttributes -> true;
   }
 
   public BaseEmailPredicateBuilder setFromRegex(String fromRegex) {
     this.fromRegex = fromRegex;
+    invalidatePredicate();
+    return this;
+  }
+
+  public BaseEmailPredicateBuilder setToRegex(String toRegex) {
+    this.toRegex = toRegex;
+    invalidatePredicate();
+    return this;
+  }
+
+  public BaseEmailPredicateBuilder setCcRegex(String ccRegex) {
+    this.ccRegex = ccRegex;
+    invalidatePredicate();
+    return this;
+  }
+
+  public BaseEmailPredicateBuilder setHeaderRegexes(Map<String, String> headerRegexes) {
+    this.headerRegexes = headerRegexes;
+    invalidatePredicate();
+    return this;
+  }
+
+  public BaseEmailPredicateBuilder setMinSize(Integer minSize) {
+    this.minSize = minSize;
+    invalidatePredicate();
+    return this;
+  }
+
+  public BaseEmailPredicateBuilder setMaxSize(Integer maxSize) {
+    this.maxSize = maxSize;
+    invalidatePredicate();
     return this;
   }
 
   public BaseEmailPredicateBuilder setReceivedSince(LocalDateTime receivedSince) {
     this.receivedSince = receivedSince;
+    invalidatePredicate();
     return this;
   }
 
   public BaseEmailPredicateBuilder setReceivedUntil(LocalDateTime receivedUntil) {
     this.receivedUntil = receivedUntil;
+    invalidatePredicate();
     return this;
   }
 
   public BaseEmailPredicateBuilder setSubjectRegex(String subjectRegex) {
     this.subjectRegex = subjectRegex;
+    invalidatePredicate();
     return this;
   }
 
   public BaseEmailPredicateBuilder setSentSince(LocalDateTime sentSince) {
     this.sentSince = sentSince;
+    invalidatePredicate();
     return this;
   }
 
   public BaseEmailPredicateBuilder setSentUntil(LocalDateTime sentUntil) {
     this.sentUntil = sentUntil;
+    invalidatePredicate();
     return this;
   }
 }
@@ -62,26 +62,30 @@ public class IMAPEmailPredicateBuilder extends BaseEmailPredicateBuilder {
 
   @Override
   protected Predicate<? extends BaseEmailAttributes> getBasePredicate() {
-
-    Predicate<IMAPEmailAttributes> predicate = imapEmailAttributes -> true;
-
-    if (!INCLUDE.equals(recent)) {
-      predicate = predicate.and(attributes -> recent.asBoolean().get() == attributes.getFlags().isRecent());
-    }
-
-    if (!INCLUDE.equals(deleted)) {
-      predicate = predicate.and(attributes -> deleted.asBoolean().get() == attributes.getFlags().isDeleted());
-    }
-
-    if (!INCLUDE.equals(answered)) {
-      predicate = predicate.and(attributes -> answered.asBoolean().get() == attributes.getFlags().isAnswered());
+    // The policies are resolved once, so each email only compares its flags.
+    Boolean recentValue = requiredValue(recent);
+    Boolean deletedValue = requiredValue(deleted);
+    Boolean answeredValue = requiredValue(answered);
+    Boolean seenValue = requiredValue(seen);
+
+    if (recentValue == null && deletedValue == null && answeredValue == null && seenValue == null) {
+      return (IMAPEmailAttributes attributes) -> true;
     }
 
-    if (!INCLUDE.equals(seen)) {
-      predicate = predicate.and(attributes -> seen.asBoolean().get() == attributes.getFlags().isSeen());
-    }
+    return (IMAPEmailAttributes attributes) -> {
+      EmailFlags flags = attributes.getFlags();
+      return (recentValue == null || recentValue == flags.isRecent())
+          && (deletedValue == null || deletedValue == flags.isDeleted())
+          && (answeredValue == null || answeredValue == flags.isAnswered())
+          && (seenValue == null || seenValue == flags.isSeen());
+    };
+  }
 
-    return predicate;
+  /**
+   * @return the value that a flag must have to comply with the given {@code policy}, or {@code null} if any value complies.
+   */
+  private static Boolean requiredValue(EmailFilterPolicy policy) {
+    return policy == null || INCLUDE.equals(policy) ? null : policy.asBoolean().get();
   }
 
   public EmailFilterPolicy getSeen() {
@@ -102,21 +106,25 @@ public class IMAPEmailPredicateBuilder extends BaseEmailPredicateBuilder {
 
   public IMAPEmailPredicateBuilder setAnswered(EmailFilterPolicy answered) {
     this.answered = answered;
+    invalidatePredicate();
     return this;
   }
 
   public IMAPEmailPredicateBuilder setDeleted(EmailFilterPolicy deleted) {
     this.deleted = deleted;
+    invalidatePredicate();
     return this;
   }
 
   public IMAPEmailPredicateBuilder setRecent(EmailFilterPolicy recent) {
     this.recent = recent;
+    invalidatePredicate();
     return this;
   }
 
   public IMAPEmailPredicateBuilder setSeen(EmailFilterPolicy seen) {
     this.seen = seen;
+    invalidatePredicate();
     return this;
   }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal;
+
+import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.runtime.api.metadata.TypedValue;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * {@link StoredEmailContent} implementation that fetches the body and the attachments of the email the first time any of them
+ * is accessed.
+ *
+ * @since 2.0
+ */
+public class LazyStoredEmailContent implements StoredEmailContent {
+
+  private final Supplier<StoredEmailContent> loader;
+  private volatile StoredEmailContent content;
+
+  /**
+   * Creates an instance that obtains the content of the email from the given {@code loader}, which is invoked at most once.
+   */
+  LazyStoredEmailContent(Supplier<StoredEmailContent> loader) {
+    this.loader = loader;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public TypedValue<String> getBody() {
+    return getContent().getBody();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  public Map<String, TypedValue<InputStream>> getAttachments() {
+    return getContent().getAttachments();
+  }
+
+  /**
+   * @return whether the content of the email was already fetched.
+   */
+  public boolean isLoaded() {
+    return content != null;
+  }
+
+  private StoredEmailContent getContent() {
+    StoredEmailContent loaded = content;
+    if (loaded == null) {
+      synchronized (this) {
+        loaded = content;
+        if (loaded == null) {
+          loaded = loader.get();
+          content = loaded;
+        }
+      }
+    }
+    return loaded;
+  }
+
+  @Override
+  public String toString() {
+    return getContent().toString();
+  }
+}
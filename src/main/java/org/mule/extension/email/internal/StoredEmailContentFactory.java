@@ -35,6 +35,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import javax.mail.Header;
 import javax.mail.Message;
@@ -93,6 +94,15 @@ public class StoredEmailContentFactory {
     return new DefaultStoredEmailContent(new TypedValue<>(textBuilder.toString(), dataType), processedAttachments);
   }
 
+  /**
+   * Creates an instance whose content is obtained from the given {@code loader} the first time it is accessed.
+   *
+   * @param loader the function that fetches the content of the email.
+   */
+  public StoredEmailContent lazily(Supplier<StoredEmailContent> loader) {
+    return new LazyStoredEmailContent(loader);
+  }
+
   private void processUnnamedAttachments(LinkedHashMap<String, TypedValue<InputStream>> processedAttachments,
                                          LinkedList<MessageAttachment> unnamedAttachments, StringBuilder textBuilder) {
     Collections.reverse(unnamedAttachments); // This is done to avoid breaking backwards ordering of unnamed emails.
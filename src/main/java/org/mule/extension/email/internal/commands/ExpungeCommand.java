@@ -6,10 +6,17 @@
  */
 package org.mule.extension.email.internal.commands;
 
+import static java.lang.String.format;
 import static javax.mail.Folder.READ_WRITE;
 
+import org.mule.extension.email.api.exception.ExpungeFolderException;
 import org.mule.extension.email.internal.mailbox.MailboxConnection;
 
+import com.sun.mail.imap.IMAPFolder;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
 /**
  * Represents the expungeFolder (eliminate completely) emails from folder operation.
  * <p>
@@ -19,6 +26,8 @@ import org.mule.extension.email.internal.mailbox.MailboxConnection;
  */
 public final class ExpungeCommand {
 
+  private static final String UIDPLUS_CAPABILITY = "UIDPLUS";
+
   /**
    * Removes from the mailbox all deleted messages if the flag is set true.
    *
@@ -29,4 +38,29 @@ public final class ExpungeCommand {
     connection.getFolder(folderName, READ_WRITE);
     connection.closeFolder(true);
   }
+
+  /**
+   * Removes from the mailbox only the given DELETED {@code emails} with a single {@code UID EXPUNGE} command, leaving untouched
+   * any other email marked as DELETED. This requires the server to support the UIDPLUS extension.
+   *
+   * @param connection the associated {@link MailboxConnection}.
+   * @param folderName the name of the IMAP folder that is going to erase the deleted emails.
+   * @param emails     the emails to erase, as returned by {@link SetFlagCommand#setByUIDs}.
+   * @return true if the emails were erased, false if the server does not support UIDPLUS, in which case they are erased when the
+   *         folder is closed with expunge.
+   */
+  public boolean expungeEmails(MailboxConnection connection, String folderName, Message[] emails) {
+    if (emails.length == 0) {
+      return true;
+    }
+    try {
+      if (!connection.hasCapability(UIDPLUS_CAPABILITY)) {
+        return false;
+      }
+      ((IMAPFolder) connection.getFolder(folderName, READ_WRITE)).expunge(emails);
+      return true;
+    } catch (MessagingException e) {
+      throw new ExpungeFolderException(format("Error while expunging emails from folder [%s]", folderName), e);
+    }
+  }
 }
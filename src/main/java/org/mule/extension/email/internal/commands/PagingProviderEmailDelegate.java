@@ -10,6 +10,7 @@ import static java.lang.Integer.max;
 import static java.lang.Integer.min;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.reverse;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static javax.mail.Folder.READ_ONLY;
 import static javax.mail.Folder.READ_WRITE;
 import static org.mule.runtime.core.api.util.ClassUtils.withContextClassLoader;
@@ -24,21 +25,35 @@ import org.mule.extension.email.internal.StoredEmailContentFactory;
 import org.mule.extension.email.internal.mailbox.MailboxAccessConfigOverrides;
 import org.mule.extension.email.internal.mailbox.MailboxAccessConfiguration;
 import org.mule.extension.email.internal.mailbox.MailboxConnection;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher.StagedEmail;
 import org.mule.extension.email.api.StoredEmailContent;
 import org.mule.runtime.api.exception.MuleException;
+import org.mule.runtime.api.scheduler.Scheduler;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.streaming.PagingProvider;
 import org.mule.runtime.extension.api.runtime.streaming.StreamingHelper;
 
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
+import javax.mail.search.SearchTerm;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.function.BiConsumer;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 
@@ -46,6 +61,10 @@ import org.slf4j.Logger;
 
 /**
  * {@link PagingProvider} implementation for list emails operation.
+ * <p>
+ * When pages are fetched ahead, they are fetched in a different thread than the one that requests them. The state of the paging
+ * and the folder opened in the sticky connection are only used while holding the monitor of this provider. The content of the
+ * emails is read, and the emails are collected to be deleted, only once their page is returned.
  *
  * @since 1.0
  */
@@ -66,10 +85,46 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
   private final StreamingHelper streamingHelper;
   private int retrievedEmailCount;
   private final boolean deleteAfterRetrieve;
-  private final BiConsumer<MailboxConnection, BaseEmailAttributes> deleteAfterReadCallback;
-  private final Predicate<BaseEmailAttributes> matcher;
+  private final BiConsumer<MailboxConnection, List<BaseEmailAttributes>> deleteAfterReadCallback;
+  private final StagedEmailMatcher matcher;
   private boolean initialized = false;
   private MailboxAccessConfigOverrides overrides;
+  private final SearchTerm searchTerm;
+
+  /**
+   * The emails that matched the {@link #searchTerm} on the server, in ascending order, or {@code null} if the emails are not
+   * searched on the server or they are paged by UID.
+   */
+  private Message[] searchResults;
+
+  /**
+   * The UIDs of the paged emails, in ascending order, taken when the first page is retrieved. {@code null} if the folder does not
+   * support UIDs, in which case emails are paged by message number.
+   */
+  private long[] uidSnapshot;
+
+  /**
+   * The maximum amount of pages fetched ahead of the one returned by {@link #getPage(MailboxConnection)}.
+   */
+  private int readAheadPages;
+
+  /**
+   * The {@link Scheduler} where pages are fetched ahead, or {@code null} if pages are fetched when requested.
+   */
+  private Scheduler readAheadScheduler;
+
+  /**
+   * The pages fetched ahead, in order. Each one is fetched once the previous one completes, so they are returned in order. Only
+   * used by the thread that requests the pages.
+   */
+  private final Deque<CompletableFuture<List<ListedEmail<T>>>> readAheadPagesQueue = new ArrayDeque<>();
+
+  /**
+   * The last page scheduled to be fetched ahead, which may have already been dequeued from {@link #readAheadPagesQueue}.
+   */
+  private CompletableFuture<List<ListedEmail<T>>> lastReadAheadPage;
+
+  private volatile boolean closed = false;
 
   /**
    * @param configuration           The {@link MailboxAccessConfiguration} associated to this operation.
@@ -81,7 +136,7 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
    * @param paginationOffset        Size of the pagination offset. The first {@code paginationOffset} emails will be skipped.
    * @param limit                   The maximum amount of emails that will be retrieved by htis {@link PagingProvider}
    * @param deleteAfterRetrieve     Whether the emails should be deleted after retrieval
-   * @param deleteAfterReadCallback Callback for deleting each email
+   * @param deleteAfterReadCallback Callback for deleting all the retrieved emails at once
    * @param overrides               The {@link MailboxAccessConfigOverrides} associated to this operation.
    */
   public PagingProviderEmailDelegate(MailboxAccessConfiguration configuration, String folderName,
@@ -90,12 +145,35 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
                                      int paginationOffset,
                                      int limit,
                                      boolean deleteAfterRetrieve,
-                                     BiConsumer<MailboxConnection, BaseEmailAttributes> deleteAfterReadCallback,
+                                     BiConsumer<MailboxConnection, List<BaseEmailAttributes>> deleteAfterReadCallback,
+                                     StreamingHelper streamingHelper,
+                                     MailboxAccessConfigOverrides overrides) {
+    this(configuration, folderName, matcherBuilder, null, pageSize, paginationOffset, limit, deleteAfterRetrieve,
+         deleteAfterReadCallback, streamingHelper, overrides);
+  }
+
+  /**
+   * Creates a provider that only pages over the emails that match the given {@code searchTerm} on the server. The emails
+   * returned by the server are still tested against the {@code matcherBuilder} matcher, since some servers resolve search terms
+   * with a coarser granularity. If the server fails to resolve the search, all the emails of the folder are paged.
+   *
+   * @param searchTerm the {@link SearchTerm} resolved by the server, or {@code null} to page over all the emails of the folder.
+   * @see #PagingProviderEmailDelegate(MailboxAccessConfiguration, String, BaseEmailPredicateBuilder, int, int, int, boolean,
+   *      BiConsumer, StreamingHelper, MailboxAccessConfigOverrides)
+   */
+  public PagingProviderEmailDelegate(MailboxAccessConfiguration configuration, String folderName,
+                                     BaseEmailPredicateBuilder matcherBuilder,
+                                     SearchTerm searchTerm,
+                                     int pageSize,
+                                     int paginationOffset,
+                                     int limit,
+                                     boolean deleteAfterRetrieve,
+                                     BiConsumer<MailboxConnection, List<BaseEmailAttributes>> deleteAfterReadCallback,
                                      StreamingHelper streamingHelper,
                                      MailboxAccessConfigOverrides overrides) {
     this.configuration = configuration;
     this.folderName = folderName;
-    this.matcher = matcherBuilder != null ? matcherBuilder.build() : e -> true;
+    this.matcher = new StagedEmailMatcher(configuration, matcherBuilder);
     this.pageSize = pageSize;
     this.top = pageSize;
     this.paginationOffset = paginationOffset;
@@ -107,48 +185,149 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
     this.emailsToBeDeleted = new LinkedList<>();
     this.storedEmailContentFactory = new StoredEmailContentFactory(streamingHelper);
     this.overrides = overrides;
+    this.searchTerm = searchTerm;
   }
 
   /**
-   * Retrieves emails numbered from {@code bottom} up to {@code top} in the specified {@code folderName}.
+   * Fetches up to {@code pages} pages in the given {@code scheduler} ahead of the one returned by
+   * {@link #getPage(MailboxConnection)}, so the next pages are retrieved while the flow processes the current one. Fetched pages
+   * are kept in memory until requested, so {@code pages} bounds the emails held by this provider to {@code pages + 1} pages.
    * <p>
-   * A new {@link Result} is created for each fetched email from the folder, where the payload is the text body of the email and
+   * Only the emails and their attributes are fetched ahead. Their content is read when their page is requested, so the emails of
+   * pages that are never requested are neither marked as read nor deleted.
+   * <p>
+   * The {@code scheduler} is stopped once this provider is closed.
+   *
+   * @param pages     the maximum amount of pages fetched ahead. If not greater than zero, pages are fetched when requested.
+   * @param scheduler the {@link Scheduler} where pages are fetched ahead.
+   * @return this provider.
+   * @since 2.0
+   */
+  public PagingProviderEmailDelegate<T> readAhead(int pages, Scheduler scheduler) {
+    if (pages > 0) {
+      this.readAheadPages = pages;
+      this.readAheadScheduler = scheduler;
+    } else if (scheduler != null) {
+      scheduler.stop();
+    }
+    return this;
+  }
+
+  /**
+   * Retrieves emails numbered from {@code bottom} up to {@code top} in the specified {@code folderName}. When a UID snapshot was
+   * taken, the numbers are positions in the snapshot and the emails of the page are retrieved by UID with a single command.
+   * <p>
+   * Only the emails that match are returned, along with their attributes. Their content is read by
+   * {@link #toResults(List)}.
+   */
+  private List<ListedEmail<T>> list(int startIndex, int endIndex) {
+
+    try {
+      List<ListedEmail<T>> emails = new LinkedList<>();
+      // When the emails were searched on the server, the indexes are positions in the search results.
+      Message[] messages;
+      if (uidSnapshot != null) {
+        // Emails expunged since the snapshot was taken are returned as null.
+        messages = Arrays.stream(((UIDFolder) folder).getMessagesByUID(Arrays.copyOfRange(uidSnapshot, startIndex - 1, endIndex)))
+            .filter(Objects::nonNull)
+            .toArray(Message[]::new);
+      } else if (searchResults != null) {
+        messages = Arrays.copyOfRange(searchResults, startIndex - 1, endIndex);
+      } else {
+        messages = folder.getMessages(startIndex, endIndex);
+      }
+      for (StagedEmail<T> stagedEmail : matcher.<T>prefetch(folder, messages)) {
+        T attributes = matcher.match(stagedEmail, folder);
+        if (attributes != null) {
+          emails.add(new ListedEmail<>(stagedEmail.getMessage(), attributes));
+        }
+      }
+      return emails;
+    } catch (Exception e) {
+      throw new EmailListException("Error while retrieving emails: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Creates a new {@link Result} for each email of a page that is returned, where the payload is the text body of the email and
    * the other metadata is carried by an {@link BaseEmailAttributes} instance.
    * <p>
    * For folder implementations (like IMAP) that support fetching without reading the content, if the content should NOT be read
    * ({@code shouldReadContent} = false) the SEEN flag is not going to be set. If {@code deleteAfterRead} flag is set to true, the
-   * callback {@code deleteAfterReadCallback} is applied to each email.
+   * email is collected so the callback {@code deleteAfterReadCallback} deletes all of them at once when this provider is
+   * closed.
    */
-  private List<Result<StoredEmailContent, T>> list(int startIndex, int endIndex) {
-
+  private synchronized List<Result<StoredEmailContent, T>> toResults(List<ListedEmail<T>> emails) {
+    List<Result<StoredEmailContent, T>> results = new ArrayList<>(emails.size());
     try {
-      List<Result<StoredEmailContent, T>> emails = new LinkedList<>();
-      for (Message message : folder.getMessages(startIndex, endIndex)) {
+      for (ListedEmail<T> email : emails) {
         StoredEmailContent content = StoredEmailContentFactory.EMPTY;
-        T attributes = configuration.parseAttributesFromMessage(message, folder);
-        if (matcher.test(attributes)) {
-          if (configuration.isEagerlyFetchContent()) {
-            content = storedEmailContentFactory.fromMessage(message, overrides.getAttachmentNamingStrategy());
-            // Attributes are parsed again since they may change after the email has been read.
-            attributes = configuration.parseAttributesFromMessage(message, folder);
-          }
-          emails.add(Result.<StoredEmailContent, T>builder()
-              .output(content)
-              .attributes(attributes)
-              .build());
-          if (deleteAfterRetrieve) {
-            emailsToBeDeleted.add(attributes);
-          }
+        T attributes = email.attributes;
+        if (configuration.isEagerlyFetchContent()) {
+          content = storedEmailContentFactory.fromMessage(email.message, overrides.getAttachmentNamingStrategy());
+          // Attributes are parsed again since they may change after the email has been read.
+          attributes = configuration.parseAttributesFromMessage(email.message, folder);
+        }
+        results.add(Result.<StoredEmailContent, T>builder()
+            .output(content)
+            .attributes(attributes)
+            .build());
+        if (deleteAfterRetrieve) {
+          emailsToBeDeleted.add(attributes);
         }
       }
-      return emails;
     } catch (Exception e) {
       throw new EmailListException("Error while retrieving emails: " + e.getMessage(), e);
     }
+    return results;
   }
 
   @Override
   public List<Result<StoredEmailContent, T>> getPage(MailboxConnection connection) {
+    if (readAheadScheduler == null) {
+      return fetchPage(() -> toResults(doGetPage(connection)));
+    }
+    if (readAheadPagesQueue.isEmpty()) {
+      scheduleReadAhead(connection);
+    }
+    List<ListedEmail<T>> page = awaitPage(readAheadPagesQueue.poll());
+    if (!page.isEmpty()) {
+      while (readAheadPagesQueue.size() < readAheadPages) {
+        scheduleReadAhead(connection);
+      }
+    }
+    return fetchPage(() -> toResults(page));
+  }
+
+  private void scheduleReadAhead(MailboxConnection connection) {
+    CompletableFuture<List<ListedEmail<T>>> previous = lastReadAheadPage;
+    lastReadAheadPage = previous == null
+        ? supplyAsync(() -> readAheadPage(connection), readAheadScheduler)
+        // No page follows an empty one, since it means there are no more emails to list.
+        : previous.thenApplyAsync(previousPage -> previousPage.isEmpty() ? previousPage : readAheadPage(connection),
+                                  readAheadScheduler);
+    readAheadPagesQueue.add(lastReadAheadPage);
+  }
+
+  private List<ListedEmail<T>> readAheadPage(MailboxConnection connection) {
+    return withContextClassLoader(getClass().getClassLoader(), () -> doGetPage(connection));
+  }
+
+  private List<ListedEmail<T>> awaitPage(CompletableFuture<List<ListedEmail<T>>> page) {
+    try {
+      return page.get();
+    } catch (InterruptedException e) {
+      currentThread().interrupt();
+      throw new EmailListException("Interrupted while retrieving emails", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new EmailListException("Error while retrieving emails: " + e.getCause().getMessage(), e.getCause());
+    }
+  }
+
+  private List<Result<StoredEmailContent, T>> fetchPage(Supplier<List<Result<StoredEmailContent, T>>> page) {
     /* Due to a bug in the Mule PagingProviderWrapper, this delegate was not called with the appropriate Class Loader.
     That was fixed in MULE-16617, which went live with the 4.2.1 mule runtime version, so once the MinMuleVersion
     is 4.2.1 or higher, this code can be removed. Meanwhile, this code is required to avoid execution with an invalid
@@ -156,13 +335,16 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
     ClassLoader currentClassLoader = currentThread().getContextClassLoader();
     if (currentClassLoader != getClass().getClassLoader()) {
       LOGGER.debug("Incorrect class loader. Switching to the right one.");
-      return withContextClassLoader(getClass().getClassLoader(), () -> doGetPage(connection));
+      return withContextClassLoader(getClass().getClassLoader(), page::get);
     } else {
-      return doGetPage(connection);
+      return page.get();
     }
   }
 
-  private List<Result<StoredEmailContent, T>> doGetPage(MailboxConnection connection) {
+  private synchronized List<ListedEmail<T>> doGetPage(MailboxConnection connection) {
+    if (closed) {
+      return emptyList();
+    }
     if (limit > 0 && retrievedEmailCount >= limit) {
       return emptyList();
     }
@@ -174,10 +356,17 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
       boolean offsetReached = false;
       if (!initialized) {
         initialized = true;
-        top = folder.getMessageCount();
+        Message[] matches = search();
+        uidSnapshot = takeUidSnapshot(matches);
+        if (uidSnapshot != null) {
+          top = uidSnapshot.length;
+        } else {
+          searchResults = matches;
+          top = searchResults != null ? searchResults.length : folder.getMessageCount();
+        }
         bottom = max(1, top - pageSize + 1);
-        if (bottom <= paginationOffset) {
-          bottom = paginationOffset + 1;
+        if (bottom <= getIndexOffset()) {
+          bottom = getIndexOffset() + 1;
         }
 
         if (top == 0)
@@ -186,13 +375,13 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
 
       while (bottom <= top && (limit < 0 || retrievedEmailCount < limit) && bottom > 0 && !offsetReached) {
 
-        List<Result<StoredEmailContent, T>> emails = list(bottom, top);
+        List<ListedEmail<T>> emails = list(bottom, top);
 
         top -= pageSize;
         bottom = max(1, top - pageSize + 1);
 
-        if (bottom <= paginationOffset) {
-          bottom = paginationOffset + 1;
+        if (bottom <= getIndexOffset()) {
+          bottom = getIndexOffset() + 1;
           offsetReached = true;
         }
 
@@ -216,6 +405,66 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
     return emptyList();
   }
 
+  /**
+   * @return the amount of indexes skipped at the beginning of the paged emails. The search results and the UID snapshot already
+   *         exclude the emails within the pagination offset.
+   */
+  private int getIndexOffset() {
+    return uidSnapshot != null || searchResults != null ? 0 : paginationOffset;
+  }
+
+  /**
+   * Takes the UIDs of the emails to page, so the following pages are retrieved by UID and are not shifted by emails that are
+   * expunged or arrive in the meantime. The UIDs are fetched in bulk with a single command.
+   *
+   * @param searchResults the emails that matched the {@link #searchTerm} on the server, or {@code null} to take the UIDs of all
+   *                      the emails of the folder after the pagination offset.
+   * @return the UIDs in ascending order, or {@code null} if the folder does not support UIDs or they could not be fetched.
+   */
+  private long[] takeUidSnapshot(Message[] searchResults) {
+    if (!(folder instanceof UIDFolder)) {
+      return null;
+    }
+    try {
+      Message[] messages = searchResults;
+      if (messages == null) {
+        int messageCount = folder.getMessageCount();
+        messages = messageCount > paginationOffset ? folder.getMessages(paginationOffset + 1, messageCount) : new Message[0];
+      }
+      FetchProfile fetchProfile = new FetchProfile();
+      fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+      folder.fetch(messages, fetchProfile);
+      long[] uids = new long[messages.length];
+      for (int i = 0; i < messages.length; i++) {
+        uids[i] = ((UIDFolder) folder).getUID(messages[i]);
+      }
+      return uids;
+    } catch (MessagingException e) {
+      LOGGER.debug("Error fetching the UIDs of the emails, they will be paged by message number", e);
+      return null;
+    }
+  }
+
+  /**
+   * Searches the emails that match the {@link #searchTerm} on the server. The emails numbered up to the pagination offset are
+   * discarded, so the search results are paged the same way as the emails of the folder.
+   *
+   * @return the matching emails in ascending order, or {@code null} if there is no search term or the search failed.
+   */
+  private Message[] search() {
+    if (searchTerm == null) {
+      return null;
+    }
+    try {
+      return Arrays.stream(folder.search(searchTerm))
+          .filter(message -> message.getMessageNumber() > paginationOffset)
+          .toArray(Message[]::new);
+    } catch (MessagingException e) {
+      LOGGER.debug("Error searching emails on the server, all the emails of the folder will be listed", e);
+      return null;
+    }
+  }
+
   /**
    * @param connection The connection to be used to do the query.
    * @return {@link Optional#empty()} because a priori there is no way for knowing how many emails are going to be tested
@@ -228,12 +477,38 @@ public final class PagingProviderEmailDelegate<T extends BaseEmailAttributes>
 
   @Override
   public void close(MailboxConnection connection) throws MuleException {
-    emailsToBeDeleted.forEach(e -> deleteAfterReadCallback.accept(connection, e));
-    connection.closeFolder(true);
+    closed = true;
+    if (lastReadAheadPage != null) {
+      // Waits for the pages fetched ahead, which are no longer fetched once closed, before the scheduler is stopped.
+      lastReadAheadPage.handle((page, error) -> null).join();
+    }
+    if (readAheadScheduler != null) {
+      readAheadScheduler.stop();
+    }
+    synchronized (this) {
+      if (!emailsToBeDeleted.isEmpty()) {
+        deleteAfterReadCallback.accept(connection, emailsToBeDeleted);
+      }
+      connection.closeFolder(true);
+    }
   }
 
   @Override
   public boolean useStickyConnections() {
     return true;
   }
+
+  /**
+   * An email of a page that matched, whose content was not read yet.
+   */
+  private static final class ListedEmail<T extends BaseEmailAttributes> {
+
+    private final Message message;
+    private final T attributes;
+
+    private ListedEmail(Message message, T attributes) {
+      this.message = message;
+      this.attributes = attributes;
+    }
+  }
 }
@@ -7,14 +7,22 @@
 package org.mule.extension.email.internal.commands;
 
 import static java.lang.String.format;
+import static java.util.Arrays.stream;
 import static javax.mail.Folder.READ_WRITE;
 
 import org.mule.extension.email.api.exception.EmailNotFoundException;
 import org.mule.extension.email.internal.mailbox.MailboxConnection;
 import org.mule.runtime.extension.api.exception.ModuleException;
 
+import com.sun.mail.imap.IMAPFolder;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.mail.Flags;
 import javax.mail.Flags.Flag;
 import javax.mail.Folder;
+import javax.mail.Message;
 import javax.mail.UIDFolder;
 
 /**
@@ -79,4 +87,55 @@ public class SetFlagCommand {
       throw new EmailSetFlagException(format("Error while setting [%s] flag in email number: [%s]", flag.toString(), number), e);
     }
   }
+
+  /**
+   * Sets the specified {@code flag} into all the emails of UIDs (unique identifiers) {@code emailIds} with a single
+   * {@code UID STORE} command. UIDs of emails that are no longer in the folder are ignored.
+   * <p>
+   * This method only works for {@link IMAPFolder}s.
+   *
+   * @param connection the associated {@link MailboxConnection}.
+   * @param folderName the name of the folder where the emails are stored.
+   * @param flag       the {@link Flag} that wants to be set in the email messages.
+   * @param emailIds   the unique identifiers of the emails in the corresponding {@link UIDFolder} of name {@code folderName}
+   * @return the flagged emails.
+   */
+  public Message[] setByUIDs(MailboxConnection connection, String folderName, Flag flag, long[] emailIds) {
+    if (emailIds.length == 0) {
+      return new Message[0];
+    }
+    try {
+      IMAPFolder folder = (IMAPFolder) connection.getFolder(folderName, READ_WRITE);
+      Message[] messages = stream(folder.getMessagesByUID(emailIds)).filter(Objects::nonNull).toArray(Message[]::new);
+      if (messages.length > 0) {
+        folder.setFlags(messages, new Flags(flag), true);
+      }
+      return messages;
+    } catch (Exception e) {
+      throw new EmailSetFlagException(format("Error while setting [%s] flag in emails of ids %s", flag.toString(),
+                                             Arrays.toString(emailIds)),
+                                      e);
+    }
+  }
+
+  /**
+   * Sets the specified {@code flag} to all the emails of mailbox numbers {@code numbers} with a single call to the folder.
+   *
+   * @param connection the associated {@link MailboxConnection}.
+   * @param folderName the name of the folder where the emails are stored.
+   * @param flag       the {@link Flag} that wants to be set in the email messages.
+   * @param numbers    the numbers of the emails in the corresponding {@link Folder} of name {@code folderName}
+   */
+  public void setByNumbers(MailboxConnection connection, String folderName, Flag flag, int[] numbers) {
+    if (numbers.length == 0) {
+      return;
+    }
+    try {
+      connection.getFolder(folderName, READ_WRITE).setFlags(numbers, new Flags(flag), true);
+    } catch (Exception e) {
+      throw new EmailSetFlagException(format("Error while setting [%s] flag in emails numbers %s", flag.toString(),
+                                             Arrays.toString(numbers)),
+                                      e);
+    }
+  }
 }
@@ -7,9 +7,15 @@
 package org.mule.extension.email.internal.mailbox;
 
 import static javax.mail.Flags.Flag.DELETED;
+import static java.util.Collections.singletonList;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static javax.mail.Folder.READ_WRITE;
 import static org.mule.extension.email.internal.errors.EmailError.READ_EMAIL;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.CONFIG_OVERRIDES_PARAM_GROUP;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.UNLIMITED;
+import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
+import static org.mule.runtime.extension.api.runtime.source.PollContext.PollItemStatus.ACCEPTED;
+import static org.mule.runtime.extension.api.runtime.source.PollContext.PollItemStatus.FILTERED_BY_WATERMARK;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import org.mule.extension.email.api.StoredEmailContent;
@@ -18,25 +24,47 @@ import org.mule.extension.email.api.exception.EmailListException;
 import org.mule.extension.email.api.exception.ExpungeFolderException;
 import org.mule.extension.email.api.predicate.BaseEmailPredicateBuilder;
 import org.mule.extension.email.internal.StoredEmailContentFactory;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher.StagedEmail;
+import org.mule.extension.email.internal.mailbox.metrics.PollMetrics;
+import org.mule.extension.email.internal.mailbox.metrics.PollMetricsPublisher;
 import org.mule.extension.email.internal.value.MailboxFolderValueProvider;
+import org.mule.runtime.api.component.ConfigurationProperties;
+import org.mule.runtime.api.component.location.ComponentLocation;
 import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.api.scheduler.SchedulerService;
+import org.mule.runtime.api.store.ObjectStoreManager;
 import org.mule.runtime.extension.api.annotation.param.Config;
 import org.mule.runtime.extension.api.annotation.param.Connection;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
 import org.mule.runtime.extension.api.annotation.values.OfValues;
 import org.mule.runtime.extension.api.exception.ModuleException;
 import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.source.PollContext;
+import org.mule.runtime.extension.api.runtime.source.PollContext.PollItemStatus;
 import org.mule.runtime.extension.api.runtime.source.PollingSource;
 import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
 import org.slf4j.Logger;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Predicate;
-
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.mail.Flags;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
@@ -53,6 +81,9 @@ import javax.mail.MessagingException;
  */
 public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmailContent, BaseEmailAttributes> {
 
+  private static final String FOLDER_LEASE_VARIABLE = "folderLease";
+  private static final String APP_NAME_PROPERTY = "app.name";
+  private static final String DEFAULT_APP_NAME = "default";
   private static final Logger LOGGER = getLogger(BaseMailboxPollingSource.class);
 
   @Config
@@ -64,11 +95,24 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
   @Connection
   private ConnectionProvider<MailboxConnection> connectionProvider;
 
+  @Inject
+  private ObjectStoreManager objectStoreManager;
+
+  @Inject
+  private SchedulerService schedulerService;
+
+  @Inject
+  private ConfigurationProperties configurationProperties;
+
+  private ComponentLocation location;
+
   private MailboxConnection connection;
 
-  private Predicate<BaseEmailAttributes> predicate;
+  private PollStateStore pollStateStore;
+
+  private StagedEmailMatcher emailMatcher;
 
-  private AtomicInteger usingFolderCounter;
+  private FolderLease folderLease;
 
   /**
    * The name of the folder to poll emails from. Defaults to "INBOX".
@@ -85,9 +129,84 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
   @Optional(defaultValue = "false")
   private boolean deleteAfterRetrieve;
 
+  /**
+   * Whether the metrics of each poll, such as the scanned and dispatched emails and the time spent opening folders and
+   * dispatching emails, are published as DEBUG log summaries and JMX MBeans. This is disabled by default.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Whether the metrics of each poll are published as log summaries and JMX MBeans")
+  private boolean publishPollMetrics;
+
+  /**
+   * The maximum amount of emails examined by each poll in each folder. Once reached, the poll stops and the next one resumes
+   * right after the last examined email. Defaults to -1, which means there is no limit.
+   */
+  @Parameter
+  @Optional(defaultValue = UNLIMITED)
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The maximum amount of emails examined by each poll in each folder")
+  private int maxMessagesPerPoll;
+
+  /**
+   * The maximum amount of time each poll spends examining the emails of each folder. Once exceeded, the poll stops and the next
+   * one resumes right after the last examined email. This attribute works in tandem with {@link #maxPollDurationUnit}. Defaults
+   * to -1, which means there is no limit.
+   */
+  @Parameter
+  @Optional(defaultValue = UNLIMITED)
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The maximum amount of time each poll spends examining the emails of each folder")
+  private long maxPollDuration;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #maxPollDuration}. Defaults to {@code SECONDS}.
+   */
+  @Parameter
+  @Optional(defaultValue = "SECONDS")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Time unit of the max poll duration")
+  private TimeUnit maxPollDurationUnit;
+
+  /**
+   * The maximum interval between two polls when the mailbox is idle. When set, every poll that finds no new emails, and every
+   * time back pressure is applied, doubles the interval between polls up to this value, skipping the polls triggered in between.
+   * A poll that finds new emails brings the interval back to the scheduling frequency. This attribute works in tandem with
+   * {@link #maxPollIntervalUnit}. Defaults to -1, which means every poll triggered by the scheduling strategy is run.
+   */
+  @Parameter
+  @Optional(defaultValue = UNLIMITED)
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The maximum interval between two polls when the mailbox is idle")
+  private long maxPollInterval;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #maxPollInterval}. Defaults to {@code SECONDS}.
+   */
+  @Parameter
+  @Optional(defaultValue = "SECONDS")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Time unit of the max poll interval")
+  private TimeUnit maxPollIntervalUnit;
+
+  private PollBackoff pollBackoff;
+
+  private PollMetricsPublisher metricsPublisher;
+
   private StoredEmailContentFactory storedEmailContentFactory;
 
-  private Folder openFolder;
+  private volatile Folder openFolder;
+
+  private boolean fetchContentLazily;
+
+  private boolean keepFolderOpen;
+
+  private volatile String openFolderName;
+
+  private Scheduler fetchScheduler;
+
+  private FolderConnectionPool folderConnectionPool;
 
   /**
    * @return an instance of {@link BaseEmailPredicateBuilder} used to filter the retrieved emails.
@@ -99,6 +218,39 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
    */
   protected abstract boolean isWatermarkEnabled();
 
+  /**
+   * @return the maximum amount of emails whose content is fetched concurrently, each one through its own connection. Defaults
+   *         to 1, which fetches the content of the emails one at a time through the connection of the source.
+   */
+  protected int getMaxConcurrency() {
+    return 1;
+  }
+
+  /**
+   * @return whether the folder is kept selected between polls instead of being closed once the emails of each poll are
+   *         processed. When true, {@link #deleteEmails(MailboxConnection, String, List)} must remove the deleted emails from the
+   *         mailbox. Defaults to false.
+   */
+  protected boolean isFolderKeptOpen() {
+    return false;
+  }
+
+  /**
+   * @return whether the content of the dispatched emails is fetched the first time the flow accesses it instead of before
+   *         dispatching them. Defaults to false.
+   */
+  protected boolean isContentFetchedLazily() {
+    return false;
+  }
+
+  /**
+   * @return whether the content of an email fetched lazily may be read from a new handle of the folder, opened just for it, when
+   *         the folder leased by this source is no longer open. Defaults to true.
+   */
+  protected boolean isFolderReopenedToFetchContent() {
+    return true;
+  }
+
   /**
    * Starts the flow by setting up all the required objects for polling such as the matcher, email parser and connection.
    *
@@ -106,11 +258,33 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
    */
   @Override
   protected void doStart() throws ConnectionException {
-    usingFolderCounter = new AtomicInteger(0);
+    if (location == null) {
+      // Listeners must not share the object store that keeps their state, which is named after their flow.
+      throw new IllegalStateException("The location of the email listener is unknown, its poll state can not be stored");
+    }
+    folderLease = new FolderLease(this::openFolder, this::closeFolder);
+    openFolderName = folder;
     java.util.Optional<? extends BaseEmailPredicateBuilder> builder = getPredicateBuilder();
-    predicate = builder.isPresent() ? builder.get().build() : a -> true;
+    emailMatcher = new StagedEmailMatcher(config, builder.orElse(null));
     storedEmailContentFactory = new StoredEmailContentFactory();
     connection = connectionProvider.connect();
+    fetchContentLazily = isContentFetchedLazily();
+    keepFolderOpen = isFolderKeptOpen();
+    if (fetchContentLazily && deleteAfterRetrieve) {
+      LOGGER.warn("Email content can not be fetched lazily when emails are deleted after being retrieved, it will be fetched "
+          + "before dispatching them");
+      fetchContentLazily = false;
+    }
+    if (publishPollMetrics) {
+      metricsPublisher = new PollMetricsPublisher(getApplicationName(), getListenerName());
+    }
+    if (maxPollInterval > 0) {
+      pollBackoff = new PollBackoff(maxPollIntervalUnit.toNanos(maxPollInterval));
+    }
+    if (getMaxConcurrency() > 1) {
+      fetchScheduler = schedulerService.ioScheduler();
+      folderConnectionPool = new FolderConnectionPool(connectionProvider, getMaxConcurrency(), fetchScheduler);
+    }
   }
 
   /**
@@ -121,110 +295,414 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
   @Override
   protected void doStop() {
     LOGGER.debug("Stopping Email Listener");
+    if (metricsPublisher != null) {
+      metricsPublisher.dispose();
+      metricsPublisher = null;
+    }
+    // The pending fetches must finish before the pool is disposed, so they release their connections to it.
+    if (fetchScheduler != null) {
+      fetchScheduler.stop();
+      fetchScheduler = null;
+    }
+    if (folderConnectionPool != null) {
+      folderConnectionPool.dispose();
+      folderConnectionPool = null;
+    }
     if (connection != null) {
       connectionProvider.disconnect(connection);
     }
 
     connection = null;
-    usingFolderCounter = null;
+    pollBackoff = null;
+    folderLease = null;
+    pollStateStore = null;
+  }
+
+  /**
+   * Records that back pressure was applied to an email, so the source polls less often if a max poll interval is configured.
+   * The interval is increased once when the current poll completes, however many emails were rejected.
+   */
+  protected void backPressureApplied() {
+    PollBackoff backoff = pollBackoff;
+    if (backoff != null) {
+      backoff.backPressureApplied();
+    }
+  }
+
+  /**
+   * @return the name of the configured folder.
+   */
+  protected String getFolderName() {
+    return folder;
+  }
+
+  /**
+   * Resolves the folders polled by this source, which are polled one after the other through the same connection.
+   *
+   * @param connection the connection used by this source.
+   * @return the names of the folders to poll. Defaults to the configured folder.
+   */
+  protected List<String> getPolledFolders(MailboxConnection connection) {
+    return singletonList(folder);
+  }
+
+  /**
+   * Retrieves a value that was stored with {@link #storePollState(String, Serializable)}, that survives restarts of this
+   * source and of the application.
+   *
+   * @param key the key of the value.
+   * @return the stored value, or {@link java.util.Optional#empty()} if there is no value or it could not be retrieved.
+   */
+  protected <T extends Serializable> java.util.Optional<T> retrievePollState(String key) {
+    return getPollStateStore().retrieve(key);
   }
 
   /**
-   * Polls emails from the configured folder.
+   * Stores a value in a persistent object store private to this source, replacing the previous value if any.
+   *
+   * @param key   the key of the value.
+   * @param value the value to store.
+   */
+  protected void storePollState(String key, Serializable value) {
+    getPollStateStore().store(key, value);
+  }
+
+  /**
+   * Retrieves the keys of the values stored with {@link #storePollState(String, Serializable)} that start with the given
+   * {@code prefix}.
+   *
+   * @param prefix the prefix of the keys.
+   * @return the matching keys, or an empty list if they could not be retrieved.
+   */
+  protected List<String> retrievePollStateKeys(String prefix) {
+    return getPollStateStore().keys(prefix);
+  }
+
+  /**
+   * Removes a value that was stored with {@link #storePollState(String, Serializable)}, if any.
+   *
+   * @param key the key of the value.
+   */
+  protected void removePollState(String key) {
+    getPollStateStore().remove(key);
+  }
+
+  /**
+   * @return the name of the flow that owns this source.
+   */
+  private String getListenerName() {
+    return location.getRootContainerName();
+  }
+
+  /**
+   * @return the name of the application that owns this source.
+   */
+  private String getApplicationName() {
+    return configurationProperties.resolveStringProperty(APP_NAME_PROPERTY).orElse(DEFAULT_APP_NAME);
+  }
+
+  /**
+   * @return the state of this source that survives restarts of this source and of the application.
+   */
+  protected synchronized PollStateStore getPollStateStore() {
+    if (pollStateStore == null) {
+      pollStateStore = new PollStateStore(objectStoreManager, getListenerName());
+    }
+    return pollStateStore;
+  }
+
+  /**
+   * Polls emails from the configured folders, one after the other, through the connection of this source.
    * <p>
    * This method handles the deletion of the retrieved emails if specified and sets watermark to all the polled items if required.
    * <p>
-   * The folder is opened at the end of the method to get an updated state of the folder and is closed at the end to save the
-   * state of the mailbox with changes such as flag marks and deletion of the polled elements.
+   * Each folder is opened at the beginning of its poll to get an updated state of the folder and is closed at the end, or when
+   * the next folder is opened, to save the state of the mailbox with changes such as flag marks and deletion of the polled
+   * elements.
    * <p>
-   * All retrieved emails are parsed to extract its attributes and content and are ALWAYS opened.
+   * All retrieved emails are parsed to extract its attributes and content and are ALWAYS opened. If the max concurrency is
+   * greater than 1, the content of up to that amount of emails is fetched in parallel through a pool of connections, and the
+   * poll is not skipped while the emails of the previous poll are still being processed.
    * <p>
    * By default only UNREAD emails are going to be polled.
    */
   @Override
   public void poll(PollContext<StoredEmailContent, BaseEmailAttributes> pollContext) {
-    if (isFolderBeingUsed()) {
-      LOGGER.debug("Poll will be skipped, since last poll emails are still being processed");
-      return;
+    PollMetrics metrics = new PollMetrics(getListenerName());
+    try {
+      if (folderConnectionPool == null && folderLease.isHeld()) {
+        LOGGER.debug("Poll will be skipped, since last poll emails are still being processed");
+        metrics.skipped("last poll emails are still being processed");
+        return;
+      }
+      if (pollBackoff != null && !pollBackoff.tryPoll()) {
+        LOGGER.debug("Poll will be skipped, since the mailbox is idle");
+        metrics.skipped("the mailbox is idle");
+        return;
+      }
+      try {
+        pollFolders(pollContext, metrics);
+      } catch (RuntimeException e) {
+        metrics.failed();
+        throw e;
+      } finally {
+        // The outcome of a failed poll is recorded too, so errors do not freeze the backoff state.
+        if (pollBackoff != null) {
+          pollBackoff.pollCompleted(metrics.getDispatched() > 0);
+          if (pollBackoff.getInterval() > 0) {
+            LOGGER.debug("Backing off, polls will run at least every {} ms", NANOSECONDS.toMillis(pollBackoff.getInterval()));
+          }
+        }
+      }
+    } finally {
+      if (metricsPublisher != null) {
+        metrics.completed();
+        metricsPublisher.publish(metrics);
+      }
+    }
+  }
+
+  private void pollFolders(PollContext<StoredEmailContent, BaseEmailAttributes> pollContext, PollMetrics metrics) {
+    RuntimeException pollError = null;
+    for (String folderName : getPolledFolders(connection)) {
+      if (pollContext.isSourceStopping()) {
+        return;
+      }
+      if (!hasNewEmails(connection, folderName)) {
+        LOGGER.debug("Poll will be skipped, since there are no new emails in folder {}", folderName);
+        continue;
+      }
+      try {
+        pollFolder(pollContext, folderName, metrics);
+      } catch (RuntimeException e) {
+        // An error in one folder must not prevent the others from being polled.
+        LOGGER.debug("Error polling folder " + folderName, e);
+        if (pollError == null) {
+          pollError = e;
+        }
+      }
+    }
+    if (pollError != null) {
+      throw pollError;
     }
+    if (metrics.getFoldersPolled() == 0) {
+      metrics.skipped("there are no new emails");
+    }
+  }
+
+  private void pollFolder(PollContext<StoredEmailContent, BaseEmailAttributes> pollContext, String folderName,
+                          PollMetrics metrics) {
+    Deque<PendingEmail> pendingEmails = new ArrayDeque<>();
+    List<BaseEmailAttributes> emailsToBeDeleted = new ArrayList<>();
+    long openStart = System.nanoTime();
+    FolderLease.Handle pollLease = beginUsingFolder(folderName);
+    metrics.folderOpened(System.nanoTime() - openStart);
     try {
-      beginUsingFolder();
-      for (Message message : getMessages(openFolder)) {
-        BaseEmailAttributes attributes = config.parseAttributesFromMessage(message, openFolder);
-        String id = attributes.getId();
-        if (predicate.test(attributes)) {
-          emailDispatchedToFlow();
-          pollContext.accept(item -> {
-            try {
-              if (isWatermarkEnabled()) {
-                item.setWatermark(Long.valueOf(id));
-              }
-              item.setId(id);
-
-              item.setResult(Result.<StoredEmailContent, BaseEmailAttributes>builder()
-                  .output(getEmailContent(message, id))
-                  .attributes(attributes)
-                  .build());
-
-              if (deleteAfterRetrieve) {
-                markAsDeleted(id, message);
-              }
-            } catch (Exception e) {
-              LOGGER.error(e.getMessage(), e);
-              emailOnFlowError();
+      Message[] messages = getMessages(openFolder);
+      boolean truncated = maxMessagesPerPoll > 0 && messages.length > maxMessagesPerPoll;
+      if (truncated) {
+        messages = Arrays.copyOf(messages, maxMessagesPerPoll);
+      }
+      long deadline = maxPollDuration > 0 ? System.nanoTime() + maxPollDurationUnit.toNanos(maxPollDuration) : 0;
+      BaseEmailAttributes lastScanned = null;
+      for (StagedEmail<BaseEmailAttributes> stagedEmail : emailMatcher.<BaseEmailAttributes>prefetch(openFolder, messages)) {
+        if (deadline != 0 && lastScanned != null && System.nanoTime() - deadline > 0) {
+          LOGGER.debug("Max poll duration reached, the next poll will resume after email [{}]", lastScanned.getId());
+          truncated = true;
+          break;
+        }
+        Message message = stagedEmail.getMessage();
+        lastScanned = stagedEmail.getEnvelope();
+        metrics.messagesScanned(1);
+        BaseEmailAttributes attributes = emailMatcher.match(stagedEmail, openFolder);
+        if (attributes != null) {
+          metrics.predicateMatched();
+          if (fetchContentLazily) {
+            dispatch(pollContext, attributes,
+                     () -> storedEmailContentFactory.lazily(() -> loadEmailContent(folderName, attributes)),
+                     emailsToBeDeleted, metrics);
+          } else if (folderConnectionPool == null) {
+            dispatch(pollContext, attributes, () -> fetchEmailContent(message, attributes.getId(), metrics), emailsToBeDeleted,
+                     metrics);
+          } else {
+            pendingEmails.add(new PendingEmail(attributes, folderConnectionPool
+                .submit(folderName,
+                        pooledFolder -> fetchEmailContent(getMessage(pooledFolder, attributes), attributes.getId(), metrics))));
+            if (pendingEmails.size() >= getMaxConcurrency()) {
+              dispatch(pollContext, pendingEmails.poll(), emailsToBeDeleted, metrics);
             }
-          });
+          }
         }
       }
+      while (!pendingEmails.isEmpty()) {
+        dispatch(pollContext, pendingEmails.poll(), emailsToBeDeleted, metrics);
+      }
+      if (truncated && lastScanned != null) {
+        pollTruncated(folderName, lastScanned);
+      }
+      pollCompleted(folderName);
     } finally {
-      endUsingFolder();
+      pendingEmails.forEach(pendingEmail -> pendingEmail.content.cancel(true));
+      if (!emailsToBeDeleted.isEmpty()) {
+        try {
+          deleteEmails(connection, folderName, emailsToBeDeleted);
+        } catch (RuntimeException e) {
+          LOGGER.error("Error deleting the retrieved emails from folder " + folderName + ": " + e.getMessage(), e);
+        }
+      }
+      if (folderConnectionPool != null && !keepFolderOpen) {
+        folderConnectionPool.closeFolders(deleteAfterRetrieve);
+      }
+      pollLease.release();
     }
   }
 
-  private boolean isFolderBeingUsed() {
-    synchronized (usingFolderCounter) {
-      return usingFolderCounter.get() != 0;
+  private void dispatch(PollContext<StoredEmailContent, BaseEmailAttributes> pollContext, PendingEmail pendingEmail,
+                        List<BaseEmailAttributes> emailsToBeDeleted, PollMetrics metrics) {
+    dispatch(pollContext, pendingEmail.attributes, () -> {
+      try {
+        return pendingEmail.content.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+      }
+    }, emailsToBeDeleted, metrics);
+  }
+
+  private void dispatch(PollContext<StoredEmailContent, BaseEmailAttributes> pollContext, BaseEmailAttributes attributes,
+                        Callable<StoredEmailContent> content, List<BaseEmailAttributes> emailsToBeDeleted,
+                        PollMetrics metrics) {
+    String id = attributes.getId();
+    FolderLease.Handle emailLease = isFolderLeasedUntilProcessed() ? folderLease.acquire() : null;
+    AtomicBoolean resultSet = new AtomicBoolean(false);
+    long dispatchStart = System.nanoTime();
+    PollItemStatus status = pollContext.accept(item -> {
+      try {
+        if (isWatermarkEnabled()) {
+          item.setWatermark(Long.valueOf(id));
+        }
+        item.setId(id);
+
+        item.setResult(Result.<StoredEmailContent, BaseEmailAttributes>builder()
+            .output(content.call())
+            .attributes(attributes)
+            .build());
+        resultSet.set(true);
+        if (deleteAfterRetrieve) {
+          emailsToBeDeleted.add(attributes);
+        }
+        if (emailLease != null) {
+          item.getSourceCallbackContext().addVariable(FOLDER_LEASE_VARIABLE, emailLease);
+        }
+      } catch (Exception e) {
+        LOGGER.error(e.getMessage(), e);
+      }
+    });
+    if (status == ACCEPTED) {
+      metrics.dispatched(System.nanoTime() - dispatchStart);
+    } else if (status == FILTERED_BY_WATERMARK) {
+      metrics.watermarkRejected();
+    }
+    if (emailLease != null && !(resultSet.get() && status == ACCEPTED)) {
+      emailLease.release();
     }
+    if (resultSet.get() && (status == ACCEPTED || status == FILTERED_BY_WATERMARK)) {
+      emailAccepted(attributes);
+    }
+  }
+
+  /**
+   * Checks, before opening the folder, if it may contain emails that were not polled yet. If this method returns false the poll
+   * is skipped.
+   *
+   * @param connection the connection used by this source.
+   * @param folderName the name of the polled folder.
+   * @return true if the folder must be polled, false otherwise. Defaults to true.
+   */
+  protected boolean hasNewEmails(MailboxConnection connection, String folderName) {
+    return true;
   }
 
-  protected void emailDispatchedToFlow() {
+  /**
+   * Invoked when a poll stops examining the emails of a folder because the max messages per poll or the max poll duration was
+   * reached, before {@link #pollCompleted(String)}. Implementations must make the next poll resume right after
+   * {@code lastScanned}.
+   *
+   * @param folderName  the name of the polled folder.
+   * @param lastScanned the attributes of the last examined email.
+   */
+  protected void pollTruncated(String folderName, BaseEmailAttributes lastScanned) {
     // Do nothing.
   }
 
-  protected void emailOnFlowError() {
+  /**
+   * Invoked once all the emails retrieved from a folder by a poll were processed without errors.
+   *
+   * @param folderName the name of the polled folder.
+   */
+  protected void pollCompleted(String folderName) {
     // Do nothing.
   }
 
-  protected void beginUsingFolder() {
-    synchronized (usingFolderCounter) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("beginUsingFolder = " + usingFolderCounter.get());
-      }
-      int currentUsingFolderCounter = usingFolderCounter.incrementAndGet();
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Current folder count (beginUsingFolder) " + usingFolderCounter.get());
-      }
-      if (currentUsingFolderCounter == 1) {
-        LOGGER.debug("Opening folder. ");
-        openFolder = connection.getFolder(folder, READ_WRITE);
-      }
+  /**
+   * @return whether the folder must be kept open until each dispatched email is processed by the flow, in which case
+   *         {@link #releaseFolder(SourceCallbackContext)} must be invoked once the processing finishes. Defaults to false.
+   */
+  protected boolean isFolderLeasedUntilProcessed() {
+    return false;
+  }
+
+  /**
+   * Releases the folder lease taken for the email dispatched with the given context, if any. Releasing the same email more than
+   * once has no effect.
+   *
+   * @param sourceCallbackContext the context of the dispatched email.
+   */
+  protected void releaseFolder(SourceCallbackContext sourceCallbackContext) {
+    sourceCallbackContext.<FolderLease.Handle>getVariable(FOLDER_LEASE_VARIABLE).ifPresent(FolderLease.Handle::release);
+  }
+
+  /**
+   * Invoked once an email was handed to the poll context and it either got dispatched to the flow or was discarded because it
+   * was already behind the watermark. In both cases the email will never be dispatched again by this source.
+   *
+   * @param attributes the attributes of the accepted email.
+   */
+  protected void emailAccepted(BaseEmailAttributes attributes) {
+    // Do nothing.
+  }
+
+  /**
+   * Begins using the folder of name {@code folderName}. If a different folder is still being used by emails of a previous
+   * folder, that folder is closed, expunging it if required, before opening the new one.
+   */
+  private FolderLease.Handle beginUsingFolder(String folderName) {
+    if (!folderName.equals(openFolderName)) {
+      folderLease.switchFolder(() -> openFolderName = folderName);
     }
+    return folderLease.acquire();
   }
 
-  protected void endUsingFolder() {
-    synchronized (usingFolderCounter) {
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("endUsingFolder = " + usingFolderCounter.get());
-      }
-      int currentUsingFolderCounter = usingFolderCounter.decrementAndGet();
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug("Current folder count (endUsingFolder) " + usingFolderCounter.get());
-      }
-      if (currentUsingFolderCounter == 0) {
-        LOGGER.debug("Closing folder. ");
-        connection.closeFolder(deleteAfterRetrieve);
-      }
+  private void openFolder() {
+    LOGGER.debug("Opening folder {}", openFolderName);
+    openFolder = connection.getFolder(openFolderName, READ_WRITE);
+  }
+
+  private void closeFolder() {
+    if (keepFolderOpen) {
+      LOGGER.debug("Keeping folder {} open", openFolderName);
+      return;
     }
+    LOGGER.debug("Closing folder {}", openFolderName);
+    connection.closeFolder(deleteAfterRetrieve);
+  }
+
+  /**
+   * @param folderName the name of a folder.
+   * @return the folder of name {@code folderName} if it is currently open by this source, or {@code null} otherwise.
+   */
+  protected Folder getOpenFolder(String folderName) {
+    Folder folder = openFolder;
+    return folder != null && folder.isOpen() && folderName.equals(openFolderName) ? folder : null;
   }
 
   /**
@@ -236,6 +714,19 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
     result.getAttributes().ifPresent(a -> LOGGER.debug("Email [" + a.getId() + "] was not processed."));
   }
 
+  /**
+   * Looks up in the given {@code folder} the email described by {@code attributes}. Used to get the same email from a folder
+   * handle of a different connection.
+   *
+   * @param folder     an opened folder.
+   * @param attributes the attributes of the email.
+   * @return the email.
+   * @throws MessagingException if the email could not be retrieved.
+   */
+  protected Message getMessage(Folder folder, BaseEmailAttributes attributes) throws MessagingException {
+    return folder.getMessage(attributes.getNumber());
+  }
+
   protected Message[] getMessages(Folder openFolder) {
     try {
       return openFolder.getMessages();
@@ -245,16 +736,88 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
   }
 
   /**
-   * Marks an email as deleted looking it by its UID.
+   * Marks as deleted the emails retrieved from a folder by a poll, when delete after retrieve is enabled. The emails are
+   * removed from the mailbox when the folder is closed, if not before.
+   * <p>
+   * By default the emails are looked up in the folder and all of them are marked with a single call to the folder.
+   *
+   * @param connection the connection used by this source, with the folder opened.
+   * @param folderName the name of the polled folder.
+   * @param emails     the attributes of the emails to delete.
    */
-  private void markAsDeleted(String id, Message message) {
+  protected void deleteEmails(MailboxConnection connection, String folderName, List<BaseEmailAttributes> emails) {
+    Folder folder = connection.getFolder(folderName, READ_WRITE);
     try {
-      message.setFlag(DELETED, true);
+      Message[] messages = new Message[emails.size()];
+      for (int i = 0; i < messages.length; i++) {
+        messages[i] = getMessage(folder, emails.get(i));
+      }
+      folder.setFlags(messages, new Flags(DELETED), true);
     } catch (MessagingException e) {
-      throw new ExpungeFolderException("Error while setting delete flag on email uid [" + id + "]", e);
+      throw new ExpungeFolderException("Error while setting delete flag on emails of folder [" + folderName + "]", e);
     }
   }
 
+  /**
+   * Fetches the content of an email dispatched with lazy content. The folder leased by this source is used if it is still open,
+   * otherwise, if {@link #isFolderReopenedToFetchContent()}, a new handle of the folder is opened just to read the email, looking
+   * it up by its id.
+   */
+  private StoredEmailContent loadEmailContent(String folderName, BaseEmailAttributes attributes) {
+    Folder leasedFolder = openFolder;
+    boolean leasedFolderOpen = leasedFolder != null && leasedFolder.isOpen() && folderName.equals(openFolderName);
+    if (!isFolderReopenedToFetchContent()) {
+      if (!leasedFolderOpen) {
+        throw new ModuleException("Error reading email: [" + attributes.getId() + "]: the content can only be read while the "
+            + "email is being processed by the flow", READ_EMAIL);
+      }
+      try {
+        return getEmailContent(getMessage(leasedFolder, attributes), attributes.getId());
+      } catch (MessagingException e) {
+        throw new ModuleException("Error reading email: [" + attributes.getId() + "]:" + e.getMessage(), READ_EMAIL, e);
+      }
+    }
+    if (leasedFolderOpen) {
+      try {
+        return getEmailContent(getMessage(leasedFolder, attributes), attributes.getId());
+      } catch (MessagingException | RuntimeException e) {
+        LOGGER.debug("Could not read email [{}] from the leased folder, reopening it", attributes.getId(), e);
+      }
+    }
+
+    Folder folder = null;
+    try {
+      folder = connection.lookupFolder(folderName);
+      folder.open(READ_WRITE);
+      return getEmailContent(getMessage(folder, attributes), attributes.getId());
+    } catch (MessagingException e) {
+      throw new ModuleException("Error reading email: [" + attributes.getId() + "]:" + e.getMessage(), READ_EMAIL, e);
+    } finally {
+      if (folder != null && folder.isOpen()) {
+        try {
+          folder.close(false);
+        } catch (MessagingException e) {
+          LOGGER.debug("Error closing folder " + folderName, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the content of the email, recording its size in the poll {@code metrics} if they are published.
+   */
+  private StoredEmailContent fetchEmailContent(Message message, String id, PollMetrics metrics) {
+    StoredEmailContent content = getEmailContent(message, id);
+    if (metricsPublisher != null) {
+      try {
+        metrics.contentFetched(message.getSize());
+      } catch (MessagingException e) {
+        LOGGER.debug("Could not obtain the size of email [{}]", id, e);
+      }
+    }
+    return content;
+  }
+
   private StoredEmailContent getEmailContent(Message message, String id) {
     try {
       return storedEmailContentFactory.fromMessage(message, overrides.getAttachmentNamingStrategy());
@@ -262,4 +825,18 @@ public abstract class BaseMailboxPollingSource extends PollingSource<StoredEmail
       throw new ModuleException("Error reading email: [" + id + "]:" + e.getMessage(), READ_EMAIL, e);
     }
   }
+
+  /**
+   * An email that matched the poll criteria and whose content is being fetched.
+   */
+  private static final class PendingEmail {
+
+    private final BaseEmailAttributes attributes;
+    private final Future<StoredEmailContent> content;
+
+    private PendingEmail(BaseEmailAttributes attributes, Future<StoredEmailContent> content) {
+      this.attributes = attributes;
+      this.content = content;
+    }
+  }
 }
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static javax.mail.Folder.READ_WRITE;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.scheduler.Scheduler;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.Folder;
+
+import org.slf4j.Logger;
+
+/**
+ * A small pool of {@link MailboxConnection}s, each one with its own folder handle, used to run tasks over a mailbox folder
+ * concurrently.
+ * <p>
+ * Connections are created lazily, up to the configured size, and are kept between uses until the pool is disposed. Connections
+ * released after the pool was disposed are disconnected right away.
+ *
+ * @since 2.0
+ */
+final class FolderConnectionPool {
+
+  private static final Logger LOGGER = getLogger(FolderConnectionPool.class);
+  private static final long BORROW_WAIT_MILLIS = 100;
+
+  private final ConnectionProvider<MailboxConnection> connectionProvider;
+  private final int size;
+  private final Scheduler scheduler;
+  private final BlockingQueue<MailboxConnection> idleConnections = new LinkedBlockingQueue<>();
+  private final AtomicInteger createdConnections = new AtomicInteger(0);
+  private volatile boolean disposed;
+
+  /**
+   * A task that runs over an opened folder.
+   */
+  @FunctionalInterface
+  interface FolderTask<T> {
+
+    T execute(Folder folder) throws Exception;
+  }
+
+  /**
+   * @param connectionProvider the provider used to create the pooled connections.
+   * @param size               the maximum amount of connections of the pool.
+   * @param scheduler          the {@link Scheduler} where the tasks run.
+   */
+  FolderConnectionPool(ConnectionProvider<MailboxConnection> connectionProvider, int size, Scheduler scheduler) {
+    this.connectionProvider = connectionProvider;
+    this.size = size;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Runs the given {@code task} in the pool scheduler with the folder of name {@code folderName} opened by the first available
+   * connection.
+   *
+   * @param folderName the name of the folder.
+   * @param task       the task to run.
+   * @return a {@link Future} with the result of the task.
+   */
+  <T> Future<T> submit(String folderName, FolderTask<T> task) {
+    return scheduler.submit(() -> {
+      MailboxConnection connection = borrow();
+      try {
+        return task.execute(connection.getFolder(folderName, READ_WRITE));
+      } finally {
+        release(connection);
+      }
+    });
+  }
+
+  /**
+   * Closes the folders of the idle connections.
+   *
+   * @param expunge whether to remove all the emails marked as DELETED.
+   */
+  void closeFolders(boolean expunge) {
+    for (MailboxConnection connection : idleConnections) {
+      try {
+        connection.closeFolder(expunge);
+      } catch (Exception e) {
+        LOGGER.warn("Error closing pooled folder: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Disconnects all the idle connections of the pool. Connections in use are disconnected once released, and no new connections
+   * are created.
+   */
+  void dispose() {
+    disposed = true;
+    MailboxConnection connection;
+    while ((connection = idleConnections.poll()) != null) {
+      disconnect(connection);
+    }
+  }
+
+  private MailboxConnection borrow() throws ConnectionException, InterruptedException {
+    while (true) {
+      if (disposed) {
+        throw new IllegalStateException("The folder connection pool was disposed");
+      }
+      MailboxConnection connection = idleConnections.poll();
+      if (connection != null) {
+        return connection;
+      }
+      if (createdConnections.incrementAndGet() <= size) {
+        try {
+          return connectionProvider.connect();
+        } catch (ConnectionException e) {
+          createdConnections.decrementAndGet();
+          throw e;
+        }
+      }
+      createdConnections.decrementAndGet();
+      connection = idleConnections.poll(BORROW_WAIT_MILLIS, MILLISECONDS);
+      if (connection != null) {
+        return connection;
+      }
+    }
+  }
+
+  private void release(MailboxConnection connection) {
+    if (disposed) {
+      disconnect(connection);
+    } else if (connection.validate().isValid()) {
+      idleConnections.offer(connection);
+      // The pool may have been disposed before the connection was offered.
+      if (disposed && idleConnections.remove(connection)) {
+        disconnect(connection);
+      }
+    } else {
+      LOGGER.debug("Discarding invalid pooled connection");
+      disconnect(connection);
+    }
+  }
+
+  private void disconnect(MailboxConnection connection) {
+    connectionProvider.disconnect(connection);
+    createdConnections.decrementAndGet();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A reference counted lease over the folder opened by a polling source. The folder is opened when the first {@link Handle} is
+ * acquired and closed when the last one is released.
+ * <p>
+ * Acquiring and releasing a lease that is already held only updates an atomic counter, the lock is only taken on the transitions
+ * that open or close the folder.
+ *
+ * @since 2.0
+ */
+final class FolderLease {
+
+  private final AtomicInteger holders = new AtomicInteger(0);
+  private final Object transitionLock = new Object();
+  private final Runnable openAction;
+  private final Runnable closeAction;
+
+  /**
+   * Whether the folder is open. Only accessed while holding the {@link #transitionLock}.
+   */
+  private boolean open = false;
+
+  /**
+   * @param openAction  the action that opens the folder.
+   * @param closeAction the action that closes the folder.
+   */
+  FolderLease(Runnable openAction, Runnable closeAction) {
+    this.openAction = openAction;
+    this.closeAction = closeAction;
+  }
+
+  /**
+   * Acquires the lease, opening the folder if it is not being held.
+   *
+   * @return a {@link Handle} that must be released once the folder is no longer used.
+   */
+  Handle acquire() {
+    while (true) {
+      int current = holders.get();
+      if (current > 0) {
+        if (holders.compareAndSet(current, current + 1)) {
+          return new Handle();
+        }
+      } else {
+        synchronized (transitionLock) {
+          if (holders.get() == 0) {
+            if (!open) {
+              openAction.run();
+              open = true;
+            }
+            holders.set(1);
+            return new Handle();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * @return whether at least one {@link Handle} of this lease was not released yet.
+   */
+  boolean isHeld() {
+    return holders.get() != 0;
+  }
+
+  /**
+   * Closes the folder, if open, and runs the given {@code change}, which is expected to change the folder that the open action
+   * opens. If the lease is being held, the new folder is opened right away.
+   *
+   * @param change the action that changes the leased folder.
+   */
+  void switchFolder(Runnable change) {
+    synchronized (transitionLock) {
+      if (open) {
+        closeAction.run();
+        open = false;
+      }
+      change.run();
+      if (holders.get() > 0) {
+        openAction.run();
+        open = true;
+      }
+    }
+  }
+
+  private void release() {
+    if (holders.decrementAndGet() == 0) {
+      synchronized (transitionLock) {
+        if (holders.get() == 0 && open) {
+          open = false;
+          closeAction.run();
+        }
+      }
+    }
+  }
+
+  /**
+   * A holder of the lease. Releasing a handle more than once has no effect.
+   */
+  final class Handle {
+
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private Handle() {}
+
+    /**
+     * Releases this handle, closing the folder if it was the last one being held.
+     */
+    void release() {
+      if (released.compareAndSet(false, true)) {
+        FolderLease.this.release();
+      }
+    }
+  }
+}
@@ -9,6 +9,7 @@ package org.mule.extension.email.internal.mailbox;
 import org.mule.extension.email.api.attributes.BaseEmailAttributes;
 import org.mule.extension.email.api.attachment.AttachmentNamingStrategy;
 
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
 
@@ -38,4 +39,51 @@ public interface MailboxAccessConfiguration {
    */
   <T extends BaseEmailAttributes> T parseAttributesFromMessage(Message message, Folder folder);
 
+  /**
+   * @return the {@link FetchProfile} describing the data that should be fetched in bulk, with a single {@link Folder#fetch} call,
+   *         for a batch of messages before parsing their attributes.
+   */
+  FetchProfile getAttributesFetchProfile();
+
+  /**
+   * Resolves the {@link BaseEmailAttributes} from the envelope of a given message, without downloading its headers if possible.
+   * Defaults to {@link #parseAttributesFromMessage(Message, Folder)}.
+   *
+   * @param message the {@link Message} that we want to parse.
+   * @param folder  the folder used to find the id of the message in it.
+   * @return an {@link BaseEmailAttributes} instance from the envelope of the {@code message}.
+   */
+  default <T extends BaseEmailAttributes> T parseEnvelopeAttributesFromMessage(Message message, Folder folder) {
+    return parseAttributesFromMessage(message, folder);
+  }
+
+  /**
+   * @return the {@link FetchProfile} describing the data required by
+   *         {@link #parseEnvelopeAttributesFromMessage(Message, Folder)}. Defaults to {@link #getAttributesFetchProfile()}.
+   */
+  default FetchProfile getEnvelopeFetchProfile() {
+    return getAttributesFetchProfile();
+  }
+
+  /**
+   * @return the {@link FetchProfile} with the data of {@link #getAttributesFetchProfile()} that is not already fetched by
+   *         {@link #getEnvelopeFetchProfile()}, which may be empty.
+   */
+  default FetchProfile getRemainingAttributesFetchProfile() {
+    FetchProfile envelopeProfile = getEnvelopeFetchProfile();
+    FetchProfile attributesProfile = getAttributesFetchProfile();
+    FetchProfile remainingProfile = new FetchProfile();
+    for (FetchProfile.Item item : attributesProfile.getItems()) {
+      if (!envelopeProfile.contains(item)) {
+        remainingProfile.add(item);
+      }
+    }
+    for (String headerName : attributesProfile.getHeaderNames()) {
+      if (!envelopeProfile.contains(headerName)) {
+        remainingProfile.add(headerName);
+      }
+    }
+    return remainingProfile;
+  }
+
 }
@@ -22,6 +22,8 @@ import org.mule.extension.email.internal.EmailProtocol;
 import org.mule.runtime.api.connection.ConnectionValidationResult;
 import org.mule.runtime.api.tls.TlsContextFactory;
 
+import com.sun.mail.imap.IMAPStore;
+
 import javax.mail.AuthenticationFailedException;
 import javax.mail.Folder;
 import javax.mail.MessagingException;
@@ -134,6 +136,18 @@ public class MailboxConnection extends AbstractEmailConnection {
     }
   }
 
+  /**
+   * Returns the email {@link Folder} of name {@code mailBoxFolder} without opening it and without affecting the folder currently
+   * opened by this connection. Useful to issue commands that do not require the folder to be selected.
+   *
+   * @param mailBoxFolder the name of the folder.
+   * @return the closed {@link Folder}
+   * @throws MessagingException in case of a failure.
+   */
+  public synchronized Folder lookupFolder(String mailBoxFolder) throws MessagingException {
+    return store.getFolder(mailBoxFolder);
+  }
+
   /**
    * Retrieves all the folders of the user's personal namespace.
    *
@@ -144,6 +158,18 @@ public class MailboxConnection extends AbstractEmailConnection {
     return store.getDefaultFolder().list("*");
   }
 
+  /**
+   * Checks whether the server supports the given capability. Only IMAP servers advertise capabilities, for any other protocol
+   * this method returns {@code false}.
+   *
+   * @param capability the name of the capability, for example "IDLE".
+   * @return true if the server supports the {@code capability}, false otherwise.
+   * @throws MessagingException in case of a failure.
+   */
+  public synchronized boolean hasCapability(String capability) throws MessagingException {
+    return store instanceof IMAPStore && ((IMAPStore) store).hasCapability(capability);
+  }
+
   /**
    * Closes the current connection folder.
    *
@@ -187,13 +213,14 @@ public class MailboxConnection extends AbstractEmailConnection {
   }
 
   /**
-   * Checks if a mailBoxFolder name is the same name as the current folder.
+   * Checks if a mailBoxFolder name is the full name of the current folder, so folders nested in another one are told apart from
+   * any other folder with the same name.
    *
-   * @param mailBoxFolder the name of the folder
+   * @param mailBoxFolder the full name of the folder
    * @return true if is the same folder, false otherwise.
    */
   private boolean isCurrentFolder(String mailBoxFolder) {
-    return folder.getName() != null && folder.getName().equalsIgnoreCase(mailBoxFolder);
+    return folder.getFullName() != null && folder.getFullName().equalsIgnoreCase(mailBoxFolder);
   }
 
   private void handleIllegalArgumentException(IllegalArgumentException e) throws EmailConnectionException {
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Adapts the effective interval between the polls of a source to the activity of the mailbox, by skipping some of the polls
+ * triggered by its scheduler.
+ * <p>
+ * The interval between the polls triggered by the scheduler is the minimum interval. Every poll that finds no new emails, or
+ * during which back pressure was applied, doubles the interval once up to the configured maximum. A poll that finds new emails
+ * without back pressure brings the interval back to the minimum.
+ *
+ * @since 2.0
+ */
+final class PollBackoff {
+
+  /**
+   * The interval assumed before the scheduler triggered two polls.
+   */
+  private static final long DEFAULT_PERIOD_NANOS = SECONDS.toNanos(1);
+
+  private final long maxIntervalNanos;
+  private final LongSupplier nanoClock;
+
+  private long lastTrigger = -1;
+  private long lastPoll;
+  private long period;
+  private long interval = 0;
+  private boolean backPressureApplied;
+
+  /**
+   * @param maxIntervalNanos the maximum interval between two polls, in nanoseconds.
+   */
+  PollBackoff(long maxIntervalNanos) {
+    this(maxIntervalNanos, System::nanoTime);
+  }
+
+  PollBackoff(long maxIntervalNanos, LongSupplier nanoClock) {
+    this.maxIntervalNanos = maxIntervalNanos;
+    this.nanoClock = nanoClock;
+  }
+
+  /**
+   * Invoked every time the scheduler triggers a poll.
+   *
+   * @return whether the poll must run, or false if it must be skipped because the current interval did not elapse yet.
+   */
+  synchronized boolean tryPoll() {
+    long now = nanoClock.getAsLong();
+    boolean firstTrigger = lastTrigger < 0;
+    if (!firstTrigger) {
+      period = now - lastTrigger;
+    }
+    lastTrigger = now;
+    // Triggers are not exact, so a poll is run if the interval elapses before the middle of the next period.
+    if (!firstTrigger && interval > 0 && now - lastPoll + period / 2 < interval) {
+      return false;
+    }
+    lastPoll = now;
+    return true;
+  }
+
+  /**
+   * Records that back pressure was applied to an email of the current poll. The interval is doubled only once when the poll
+   * completes, no matter how many emails were rejected.
+   */
+  synchronized void backPressureApplied() {
+    backPressureApplied = true;
+  }
+
+  /**
+   * Records that a poll completed, restoring the minimum interval if it found new emails and no back pressure was applied, or
+   * doubling it otherwise.
+   *
+   * @param newEmails whether the poll dispatched any email.
+   */
+  synchronized void pollCompleted(boolean newEmails) {
+    if (newEmails && !backPressureApplied) {
+      activity();
+    } else {
+      backOff();
+    }
+    backPressureApplied = false;
+  }
+
+  /**
+   * Records that the last poll found new emails, restoring the minimum interval.
+   */
+  synchronized void activity() {
+    interval = 0;
+  }
+
+  /**
+   * Records that the last poll found no new emails, doubling the interval up to the maximum.
+   */
+  synchronized void backOff() {
+    long base = period > 0 ? period : DEFAULT_PERIOD_NANOS;
+    interval = min(max(interval, base) * 2, maxIntervalNanos);
+  }
+
+  /**
+   * @return the current interval between polls in nanoseconds, or 0 if every poll triggered by the scheduler is run.
+   */
+  synchronized long getInterval() {
+    return interval;
+  }
+}
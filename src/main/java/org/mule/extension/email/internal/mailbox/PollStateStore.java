@@ -0,0 +1,106 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreException;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.api.store.ObjectStoreSettings;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+
+/**
+ * The state of an email listener that survives restarts of the listener and of the application, kept in a persistent object
+ * store private to the listener, which is named after its flow. Errors accessing the object store are logged and the operation
+ * is ignored, so the listener keeps running with the state it has in memory.
+ *
+ * @since 2.0
+ */
+public final class PollStateStore {
+
+  private static final Logger LOGGER = getLogger(PollStateStore.class);
+  private static final String OBJECT_STORE_PREFIX = "email-listener-state-";
+
+  private final ObjectStore<Serializable> objectStore;
+
+  /**
+   * @param objectStoreManager the manager of the object stores of the application.
+   * @param listenerName       the name of the flow that owns the listener.
+   */
+  public PollStateStore(ObjectStoreManager objectStoreManager, String listenerName) {
+    this.objectStore = objectStoreManager.getOrCreateObjectStore(OBJECT_STORE_PREFIX + listenerName,
+                                                                 ObjectStoreSettings.builder().persistent(true).build());
+  }
+
+  /**
+   * @param key the key of the value.
+   * @return the stored value, or {@link Optional#empty()} if there is no value or it could not be retrieved.
+   */
+  @SuppressWarnings("unchecked")
+  public <T extends Serializable> Optional<T> retrieve(String key) {
+    try {
+      return objectStore.contains(key) ? Optional.of((T) objectStore.retrieve(key)) : Optional.empty();
+    } catch (ObjectStoreException e) {
+      LOGGER.warn("Error retrieving the poll state [" + key + "], it will be ignored: " + e.getMessage(), e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Stores a value, replacing the previous value if any.
+   *
+   * @param key   the key of the value.
+   * @param value the value to store.
+   */
+  public void store(String key, Serializable value) {
+    try {
+      if (objectStore.contains(key)) {
+        objectStore.remove(key);
+      }
+      objectStore.store(key, value);
+    } catch (ObjectStoreException e) {
+      LOGGER.warn("Error storing the poll state [" + key + "]: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * @param prefix the prefix of the keys.
+   * @return the keys of the stored values that start with the given {@code prefix}, or an empty list if they could not be
+   *         retrieved.
+   */
+  public List<String> keys(String prefix) {
+    try {
+      return objectStore.allKeys().stream().filter(key -> key.startsWith(prefix)).collect(toList());
+    } catch (ObjectStoreException e) {
+      LOGGER.warn("Error retrieving the poll state keys [" + prefix + "], they will be ignored: " + e.getMessage(), e);
+      return emptyList();
+    }
+  }
+
+  /**
+   * Removes a value, if any.
+   *
+   * @param key the key of the value.
+   */
+  public void remove(String key) {
+    try {
+      if (objectStore.contains(key)) {
+        objectStore.remove(key);
+      }
+    } catch (ObjectStoreException e) {
+      LOGGER.warn("Error removing the poll state [" + key + "]: " + e.getMessage(), e);
+    }
+  }
+}
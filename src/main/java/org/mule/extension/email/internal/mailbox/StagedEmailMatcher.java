@@ -0,0 +1,134 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static java.util.Collections.emptyList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.api.predicate.BaseEmailPredicateBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import javax.mail.FetchProfile;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
+import org.slf4j.Logger;
+
+/**
+ * Matches emails against a matcher in two stages, so the headers of the emails are only downloaded for the ones that may match.
+ * <p>
+ * The first stage evaluates the criterias of the matcher that do not require headers against attributes parsed from the
+ * envelope and flags of the emails. The second stage parses the complete attributes of the emails that passed the first one
+ * and, if the matcher has criterias over the headers, evaluates them.
+ *
+ * @since 2.0
+ */
+public final class StagedEmailMatcher {
+
+  private static final Logger LOGGER = getLogger(StagedEmailMatcher.class);
+
+  private final MailboxAccessConfiguration configuration;
+  private final Predicate<BaseEmailAttributes> envelopePredicate;
+  private final Predicate<BaseEmailAttributes> headersPredicate;
+
+  /**
+   * @param configuration  the configuration used to fetch and parse the attributes of the emails.
+   * @param matcherBuilder the matcher of the emails, or {@code null} to match every email.
+   */
+  public StagedEmailMatcher(MailboxAccessConfiguration configuration, BaseEmailPredicateBuilder matcherBuilder) {
+    this.configuration = configuration;
+    this.envelopePredicate = matcherBuilder != null ? matcherBuilder.buildEnvelopePredicate() : attributes -> true;
+    this.headersPredicate = matcherBuilder != null && matcherBuilder.requiresHeaders() ? matcherBuilder.build() : null;
+  }
+
+  /**
+   * First stage, fetches in bulk the envelope of the given {@code messages}, parses it and evaluates the criterias that do not
+   * require headers. Then fetches in bulk, only for the emails that passed, the data still missing to parse their complete
+   * attributes. If a bulk fetch fails the data is fetched lazily, one email at a time.
+   *
+   * @return the staged emails, in the same order as the given {@code messages}.
+   */
+  public <T extends BaseEmailAttributes> List<StagedEmail<T>> prefetch(Folder folder, Message[] messages) {
+    if (messages.length == 0) {
+      return emptyList();
+    }
+    fetch(folder, messages, configuration.getEnvelopeFetchProfile());
+    List<StagedEmail<T>> stagedEmails = new ArrayList<>(messages.length);
+    List<Message> candidates = new ArrayList<>();
+    for (Message message : messages) {
+      T envelope = configuration.parseEnvelopeAttributesFromMessage(message, folder);
+      boolean candidate = envelopePredicate.test(envelope);
+      if (candidate) {
+        candidates.add(message);
+      }
+      stagedEmails.add(new StagedEmail<>(message, envelope, candidate));
+    }
+    FetchProfile remainingProfile = configuration.getRemainingAttributesFetchProfile();
+    if (!candidates.isEmpty() && (remainingProfile.getItems().length > 0 || remainingProfile.getHeaderNames().length > 0)) {
+      fetch(folder, candidates.toArray(new Message[0]), remainingProfile);
+    }
+    return stagedEmails;
+  }
+
+  /**
+   * Second stage, matches an email staged by {@link #prefetch(Folder, Message[])}.
+   *
+   * @return the complete attributes of the email if it matches, or {@code null} otherwise.
+   */
+  public <T extends BaseEmailAttributes> T match(StagedEmail<T> stagedEmail, Folder folder) {
+    if (!stagedEmail.candidate) {
+      return null;
+    }
+    T attributes = configuration.parseAttributesFromMessage(stagedEmail.message, folder);
+    return headersPredicate == null || headersPredicate.test(attributes) ? attributes : null;
+  }
+
+  private void fetch(Folder folder, Message[] messages, FetchProfile fetchProfile) {
+    try {
+      folder.fetch(messages, fetchProfile);
+    } catch (MessagingException e) {
+      LOGGER.debug("Error prefetching emails, they will be fetched lazily", e);
+    }
+  }
+
+  /**
+   * An email whose envelope was parsed and evaluated by the first stage of the matcher.
+   *
+   * @param <T> the type of the attributes of the email.
+   */
+  public static final class StagedEmail<T extends BaseEmailAttributes> {
+
+    private final Message message;
+    private final T envelope;
+    private final boolean candidate;
+
+    private StagedEmail(Message message, T envelope, boolean candidate) {
+      this.message = message;
+      this.envelope = envelope;
+      this.candidate = candidate;
+    }
+
+    /**
+     * @return the staged email.
+     */
+    public Message getMessage() {
+      return message;
+    }
+
+    /**
+     * @return the attributes of the email parsed from its envelope.
+     */
+    public T getEnvelope() {
+      return envelope;
+    }
+  }
+}
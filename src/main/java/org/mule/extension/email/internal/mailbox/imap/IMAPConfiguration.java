@@ -23,8 +23,10 @@ import org.mule.runtime.extension.api.annotation.param.display.Summary;
 
 import com.sun.mail.imap.IMAPFolder;
 
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
+import javax.mail.UIDFolder;
 
 /**
  * Configuration for operations that are performed through the IMAP (Internet Message Access Protocol) protocol.
@@ -35,7 +37,7 @@ import javax.mail.Message;
 @ConnectionProviders({IMAPProvider.class, IMAPSProvider.class})
 @Configuration(name = "imap")
 @DisplayName("IMAP")
-@Sources(IMAPPollingSource.class)
+@Sources({IMAPPollingSource.class, IMAPIdleSource.class})
 public class IMAPConfiguration implements MailboxAccessConfiguration {
 
   /**
@@ -55,6 +57,16 @@ public class IMAPConfiguration implements MailboxAccessConfiguration {
   @Optional(defaultValue = "true")
   private boolean eagerlyFetchContent;
 
+  /**
+   * Indicates whether the headers of the retrieved emails should be fetched in bulk along with the rest of the email metadata,
+   * instead of being fetched lazily, one email at a time. The default value is "true".
+   */
+  @Parameter
+  @Placement(tab = ADVANCED_TAB)
+  @Optional(defaultValue = "true")
+  @Summary("Whether the email headers are fetched in bulk along with the rest of the email metadata")
+  private boolean prefetchHeaders;
+
   /**
    * {@inheritDoc}
    */
@@ -75,4 +87,45 @@ public class IMAPConfiguration implements MailboxAccessConfiguration {
   public <T extends BaseEmailAttributes> T parseAttributesFromMessage(Message message, Folder folder) {
     return (T) new IMAPEmailAttributes(message, (IMAPFolder) folder);
   }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The attributes carry the envelope, flags and UID of the email, but no headers.
+   */
+  @Override
+  public <T extends BaseEmailAttributes> T parseEnvelopeAttributesFromMessage(Message message, Folder folder) {
+    return (T) new IMAPEmailAttributes(message, (IMAPFolder) folder, false);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Fetches the envelope, flags and UID of the emails.
+   */
+  @Override
+  public FetchProfile getEnvelopeFetchProfile() {
+    FetchProfile fetchProfile = new FetchProfile();
+    fetchProfile.add(FetchProfile.Item.ENVELOPE);
+    fetchProfile.add(FetchProfile.Item.FLAGS);
+    fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+    return fetchProfile;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Fetches the envelope, flags and UID of the emails and, if {@link #prefetchHeaders} is enabled, all their headers.
+   */
+  @Override
+  public FetchProfile getAttributesFetchProfile() {
+    FetchProfile fetchProfile = new FetchProfile();
+    fetchProfile.add(FetchProfile.Item.ENVELOPE);
+    fetchProfile.add(FetchProfile.Item.FLAGS);
+    fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+    if (prefetchHeaders) {
+      fetchProfile.add(IMAPFolder.FetchProfileItem.HEADERS);
+    }
+    return fetchProfile;
+  }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import org.mule.extension.email.internal.mailbox.PollStateStore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
+import com.sun.mail.imap.IMAPFolder;
+
+/**
+ * Loads and stores the {@link IMAPPollCursor} of each folder listened by the IMAP sources in their {@link PollStateStore}, and
+ * resolves the UIDs used to place them. A cursor is only written when it changed since it was last loaded or stored.
+ *
+ * @since 2.0
+ */
+final class IMAPCursorStore {
+
+  private static final String CURSOR_KEY_PREFIX = "cursor:";
+
+  private final Supplier<PollStateStore> stateStore;
+  private final UnaryOperator<String> keyQualifier;
+
+  /**
+   * The last value of the cursor of each folder read from or written to the {@link PollStateStore}.
+   */
+  private final Map<String, String> persistedCursors = new ConcurrentHashMap<>();
+
+  /**
+   * @param stateStore   supplies the state of the source where the cursors are stored.
+   * @param keyQualifier qualifies the key of each cursor, so sources that share the state do not overwrite each other's cursor.
+   */
+  IMAPCursorStore(Supplier<PollStateStore> stateStore, UnaryOperator<String> keyQualifier) {
+    this.stateStore = stateStore;
+    this.keyQualifier = keyQualifier;
+  }
+
+  /**
+   * @return the stored cursor of the given folder, or an empty cursor if there is none.
+   */
+  IMAPPollCursor load(String folderName) {
+    String persistedCursor = stateStore.get().<String>retrieve(getKey(folderName)).orElse(null);
+    if (persistedCursor != null) {
+      persistedCursors.put(folderName, persistedCursor);
+    } else {
+      persistedCursors.remove(folderName);
+    }
+    return IMAPPollCursor.parse(folderName, persistedCursor);
+  }
+
+  /**
+   * Stores the given {@code cursor}, unless it has no UIDVALIDITY or it did not change.
+   */
+  void store(IMAPPollCursor cursor) {
+    String serializedCursor = cursor.serialize();
+    if (cursor.hasUidValidity() && !serializedCursor.equals(persistedCursors.get(cursor.getFolder()))) {
+      stateStore.get().store(getKey(cursor.getFolder()), serializedCursor);
+      persistedCursors.put(cursor.getFolder(), serializedCursor);
+    }
+  }
+
+  private String getKey(String folderName) {
+    return keyQualifier.apply(CURSOR_KEY_PREFIX + folderName);
+  }
+
+  /**
+   * @return the UID of the last email of the folder, or 0 if it is empty.
+   */
+  static long getLastUid(IMAPFolder imapFolder) throws MessagingException {
+    long uidNext = imapFolder.getUIDNext();
+    if (uidNext > 0) {
+      return uidNext - 1;
+    }
+    int count = imapFolder.getMessageCount();
+    return count > 0 ? imapFolder.getUID(imapFolder.getMessage(count)) : 0;
+  }
+
+  /**
+   * @return the UID of the given {@code message}, or -1 if it could not be retrieved.
+   */
+  static long getUID(IMAPFolder imapFolder, Message message) {
+    try {
+      return imapFolder.getUID(message);
+    } catch (MessagingException e) {
+      return -1;
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import com.sun.mail.imap.protocol.Status;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.mail.Folder;
+import javax.mail.event.MessageChangedListener;
+import javax.mail.event.MessageCountAdapter;
+import javax.mail.event.MessageCountEvent;
+
+/**
+ * The polling state that the {@link IMAPPollingSource} keeps for each one of the folders it polls.
+ *
+ * @since 2.0
+ */
+final class IMAPFolderPollState {
+
+  /**
+   * The position of the source in the folder, persisted between restarts.
+   */
+  private final IMAPPollCursor cursor;
+
+  /**
+   * The folder STATUS observed before the running poll opened the folder.
+   */
+  private Status observedStatus;
+
+  /**
+   * The folder STATUS observed before the last poll of the folder that completed.
+   */
+  private Status lastPolledStatus;
+
+  /**
+   * Whether the folder kept open between polls notified new emails or flag changes since the last check.
+   */
+  private final AtomicBoolean changed = new AtomicBoolean(true);
+
+  /**
+   * The folder kept open between polls whose notifications are being listened.
+   */
+  private Folder watchedFolder;
+
+  /**
+   * The amount of emails of the folder kept open observed before the running poll.
+   */
+  private int observedMessageCount = -1;
+
+  /**
+   * The amount of emails of the folder kept open observed before the last poll of the folder that completed.
+   */
+  private int lastMessageCount = -1;
+
+  IMAPFolderPollState(IMAPPollCursor cursor) {
+    this.cursor = cursor;
+  }
+
+  IMAPPollCursor getCursor() {
+    return cursor;
+  }
+
+  Status getObservedStatus() {
+    return observedStatus;
+  }
+
+  void setObservedStatus(Status observedStatus) {
+    this.observedStatus = observedStatus;
+  }
+
+  Status getLastPolledStatus() {
+    return lastPolledStatus;
+  }
+
+  void setLastPolledStatus(Status lastPolledStatus) {
+    this.lastPolledStatus = lastPolledStatus;
+  }
+
+  /**
+   * Starts listening to the new emails and flag changes notified by the given open {@code folder}, if it is not the one already
+   * being listened.
+   */
+  void watch(Folder folder) {
+    if (folder != watchedFolder) {
+      folder.addMessageCountListener(new MessageCountAdapter() {
+
+        @Override
+        public void messagesAdded(MessageCountEvent event) {
+          changed.set(true);
+        }
+      });
+      folder.addMessageChangedListener((MessageChangedListener) event -> changed.set(true));
+      watchedFolder = folder;
+      changed.set(true);
+    }
+  }
+
+  /**
+   * @return whether the watched folder notified changes since the last invocation of this method.
+   */
+  boolean consumeChanges() {
+    return changed.getAndSet(false);
+  }
+
+  int getObservedMessageCount() {
+    return observedMessageCount;
+  }
+
+  void setObservedMessageCount(int observedMessageCount) {
+    this.observedMessageCount = observedMessageCount;
+  }
+
+  int getLastMessageCount() {
+    return lastMessageCount;
+  }
+
+  void setLastMessageCount(int lastMessageCount) {
+    this.lastMessageCount = lastMessageCount;
+  }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static java.lang.String.format;
+import static java.util.Arrays.stream;
+import static javax.mail.Flags.Flag.DELETED;
+import static javax.mail.Folder.READ_WRITE;
+import static java.util.function.UnaryOperator.identity;
+import static javax.mail.UIDFolder.LASTUID;
+import static org.mule.extension.email.internal.mailbox.imap.IMAPCursorStore.getLastUid;
+import static org.mule.extension.email.internal.mailbox.imap.IMAPCursorStore.getUID;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.CONFIG_OVERRIDES_PARAM_GROUP;
+import static org.mule.runtime.api.scheduler.SchedulerConfig.config;
+import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
+import static org.mule.runtime.extension.api.runtime.source.SourceClusterSupport.DEFAULT_PRIMARY_NODE_ONLY;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.api.predicate.IMAPEmailPredicateBuilder;
+import org.mule.extension.email.internal.StoredEmailContentFactory;
+import org.mule.extension.email.internal.mailbox.MailboxAccessConfigOverrides;
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+import org.mule.extension.email.internal.mailbox.PollStateStore;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher.StagedEmail;
+import org.mule.extension.email.internal.resolver.StoredEmailContentTypeResolver;
+import org.mule.extension.email.internal.value.MailboxFolderValueProvider;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.connection.ConnectionException;
+import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.exception.MuleException;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.api.scheduler.SchedulerService;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.extension.api.annotation.Alias;
+import org.mule.runtime.extension.api.annotation.source.ClusterSupport;
+import org.mule.runtime.extension.api.annotation.metadata.MetadataScope;
+import org.mule.runtime.extension.api.annotation.param.Config;
+import org.mule.runtime.extension.api.annotation.param.Connection;
+import org.mule.runtime.extension.api.annotation.param.Optional;
+import org.mule.runtime.extension.api.annotation.param.Parameter;
+import org.mule.runtime.extension.api.annotation.param.ParameterGroup;
+import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+import org.mule.runtime.extension.api.annotation.values.OfValues;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.mule.runtime.extension.api.runtime.source.Source;
+import org.mule.runtime.extension.api.runtime.source.SourceCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.mail.Flags;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.event.MessageCountAdapter;
+import javax.mail.event.MessageCountEvent;
+
+import com.sun.mail.imap.IMAPFolder;
+import org.slf4j.Logger;
+
+/**
+ * Push based listener that keeps an IMAP mailbox folder in IDLE state (RFC-2177) and polls it as soon as the server notifies
+ * that new emails arrived to the folder, instead of waking up with a fixed polling frequency.
+ * <p>
+ * Each poll fetches the emails after the highest UID already examined by this source, the same cursor used by the
+ * {@link IMAPPollingSource} when watermark is enabled, and dispatches them from a thread other than the one that keeps the
+ * folder in IDLE state. The cursor is persisted, so the emails that arrived while the source was stopped are dispatched once it
+ * starts again. The first time the source starts, and when the UIDVALIDITY of the folder changes, the emails already in the
+ * folder are skipped. In a cluster, only the primary node listens for new emails.
+ * <p>
+ * If the server does not support the IDLE capability the folder is polled with the configured
+ * {@link #fallbackPollingInterval}.
+ *
+ * @since 2.0.0
+ */
+@DisplayName("On New Email (Push) - IMAP")
+@Alias("listener-imap-idle")
+@MetadataScope(outputResolver = StoredEmailContentTypeResolver.class)
+@ClusterSupport(DEFAULT_PRIMARY_NODE_ONLY)
+public class IMAPIdleSource extends Source<StoredEmailContent, BaseEmailAttributes> {
+
+  private static final Logger LOGGER = getLogger(IMAPIdleSource.class);
+  private static final String IDLE_CAPABILITY = "IDLE";
+
+  @Config
+  private IMAPConfiguration config;
+
+  @ParameterGroup(name = CONFIG_OVERRIDES_PARAM_GROUP)
+  private MailboxAccessConfigOverrides overrides;
+
+  @Connection
+  private ConnectionProvider<MailboxConnection> connectionProvider;
+
+  @Inject
+  private SchedulerService schedulerService;
+
+  @Inject
+  private ObjectStoreManager objectStoreManager;
+
+  private ComponentLocation location;
+
+  /**
+   * The name of the folder to listen for new emails. Defaults to "INBOX".
+   */
+  @Parameter
+  @Optional(defaultValue = "INBOX")
+  @OfValues(MailboxFolderValueProvider.class)
+  private String folder;
+
+  /**
+   * A matcher to filter the emails dispatched by this source.
+   */
+  @Parameter
+  @Optional
+  private IMAPEmailPredicateBuilder imapMatcher;
+
+  /**
+   * Enables the deletion of the dispatched emails after being retrieved. This is disabled by default.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  private boolean deleteAfterRetrieve;
+
+  /**
+   * How often the IDLE command is re-issued to prevent the server from dropping the connection. RFC-2177 recommends a value lower
+   * than 29 minutes.
+   */
+  @Parameter
+  @Optional(defaultValue = "10")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("How often the IDLE command is re-issued")
+  private long keepAliveInterval;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #keepAliveInterval}.
+   */
+  @Parameter
+  @Optional(defaultValue = "MINUTES")
+  @Placement(tab = ADVANCED_TAB)
+  private TimeUnit keepAliveIntervalUnit;
+
+  /**
+   * How often the folder is checked for new emails when the server does not support the IDLE capability.
+   */
+  @Parameter
+  @Optional(defaultValue = "5")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("How often the folder is checked for new emails when the server does not support IDLE")
+  private long fallbackPollingInterval;
+
+  /**
+   * A {@link TimeUnit} which qualifies the {@link #fallbackPollingInterval}.
+   */
+  @Parameter
+  @Optional(defaultValue = "SECONDS")
+  @Placement(tab = ADVANCED_TAB)
+  private TimeUnit fallbackPollingIntervalUnit;
+
+  private MailboxConnection connection;
+  private SourceCallback<StoredEmailContent, BaseEmailAttributes> sourceCallback;
+  private StagedEmailMatcher emailMatcher;
+  private StoredEmailContentFactory storedEmailContentFactory;
+  private PollStateStore pollStateStore;
+  private final IMAPCursorStore cursorStore = new IMAPCursorStore(() -> pollStateStore, identity());
+  private Scheduler scheduler;
+  private ScheduledFuture<?> keepAlive;
+  private volatile IMAPFolder openFolder;
+  private volatile boolean running;
+  private final AtomicBoolean pollRequested = new AtomicBoolean(false);
+
+  /**
+   * The position of this source in the folder, only accessed by the polls, which never run concurrently.
+   */
+  private IMAPPollCursor cursor;
+
+  /**
+   * Whether emails were marked as deleted but could not be expunged by UID, so they are expunged when the folder is closed.
+   */
+  private boolean pendingExpunge;
+
+  /**
+   * Connects to the mailbox and starts listening the configured folder in a dedicated thread.
+   */
+  @Override
+  public void onStart(SourceCallback<StoredEmailContent, BaseEmailAttributes> sourceCallback) throws MuleException {
+    if (location == null) {
+      throw new IllegalStateException("The location of the listener is unknown, its cursor can not be stored");
+    }
+    this.sourceCallback = sourceCallback;
+    emailMatcher = new StagedEmailMatcher(config, imapMatcher == null ? new DefaultPollingSourceMatcher() : imapMatcher);
+    storedEmailContentFactory = new StoredEmailContentFactory();
+    pollStateStore = new PollStateStore(objectStoreManager, location.getRootContainerName());
+    connection = connectionProvider.connect();
+    scheduler = schedulerService.customScheduler(config().withMaxConcurrentTasks(3).withName("email-imap-idle-listener"));
+    running = true;
+    scheduler.submit(this::listen);
+  }
+
+  /**
+   * Stops listening, closes the folder and releases the connection.
+   */
+  @Override
+  public void onStop() {
+    LOGGER.debug("Stopping IMAP IDLE Email Listener");
+    running = false;
+    if (keepAlive != null) {
+      keepAlive.cancel(true);
+      keepAlive = null;
+    }
+    if (connection != null) {
+      try {
+        // Closing the folder aborts the IDLE command the listener thread is blocked on.
+        connection.closeFolder(pendingExpunge);
+      } catch (Exception e) {
+        LOGGER.debug("Error closing the folder while stopping the listener", e);
+      }
+    }
+    if (scheduler != null) {
+      scheduler.stop();
+      scheduler = null;
+    }
+    if (connection != null) {
+      connectionProvider.disconnect(connection);
+      connection = null;
+    }
+    openFolder = null;
+    cursor = null;
+  }
+
+  /**
+   * Opens the folder, catches up with the emails that arrived since the last dispatched one and keeps the folder in IDLE state,
+   * requesting a poll every time the server notifies new emails.
+   */
+  private void listen() {
+    try {
+      IMAPFolder imapFolder = (IMAPFolder) connection.getFolder(folder, READ_WRITE);
+      loadCursor(imapFolder);
+      openFolder = imapFolder;
+      imapFolder.addMessageCountListener(new MessageCountAdapter() {
+
+        @Override
+        public void messagesAdded(MessageCountEvent event) {
+          requestPoll();
+        }
+      });
+      requestPoll();
+
+      boolean idleSupported = connection.hasCapability(IDLE_CAPABILITY);
+      if (!idleSupported) {
+        LOGGER.warn("The server does not support the IDLE capability, folder {} will be checked every {} {}", folder,
+                    fallbackPollingInterval, fallbackPollingIntervalUnit);
+        keepAlive = scheduler.scheduleWithFixedDelay(this::requestPoll, fallbackPollingInterval, fallbackPollingInterval,
+                                                     fallbackPollingIntervalUnit);
+        return;
+      }
+
+      keepAlive = scheduler.scheduleWithFixedDelay(this::keepAlive, keepAliveInterval, keepAliveInterval, keepAliveIntervalUnit);
+      while (running) {
+        // Returns as soon as the server sends a notification or another thread uses the folder.
+        imapFolder.idle(true);
+      }
+    } catch (Exception e) {
+      if (running) {
+        LOGGER.error(format("Error listening folder [%s]: %s", folder, e.getMessage()), e);
+        sourceCallback.onConnectionException(new ConnectionException("Error listening folder [" + folder + "]", e));
+      }
+    }
+  }
+
+  /**
+   * Issues a NOOP on the folder, which terminates the current IDLE command so the listener thread re-issues it.
+   */
+  private void keepAlive() {
+    try {
+      openFolder.doCommand(protocol -> {
+        protocol.simpleCommand("NOOP", null);
+        return null;
+      });
+    } catch (MessagingException e) {
+      LOGGER.debug("Error sending keep alive to folder " + folder, e);
+    }
+  }
+
+  /**
+   * Schedules a poll of the folder, unless one is already scheduled and did not start yet.
+   */
+  private void requestPoll() {
+    Scheduler pollScheduler = scheduler;
+    if (running && pollScheduler != null && pollRequested.compareAndSet(false, true)) {
+      try {
+        pollScheduler.submit(this::poll);
+      } catch (RejectedExecutionException e) {
+        pollRequested.set(false);
+      }
+    }
+  }
+
+  private synchronized void poll() {
+    pollRequested.set(false);
+    if (!running) {
+      return;
+    }
+    try {
+      pollNewEmails(openFolder);
+    } catch (MessagingException e) {
+      if (running) {
+        LOGGER.error(format("Error polling folder [%s]: %s", folder, e.getMessage()), e);
+        sourceCallback.onConnectionException(new ConnectionException("Error polling folder [" + folder + "]", e));
+      }
+    } catch (RuntimeException e) {
+      LOGGER.error(format("Error polling folder [%s]: %s", folder, e.getMessage()), e);
+    }
+  }
+
+  /**
+   * Fetches the emails after the cursor, dispatches the ones that match and moves the cursor forward. If an email can not be
+   * read, the poll stops so the next one retries it.
+   */
+  private void pollNewEmails(IMAPFolder imapFolder) throws MessagingException {
+    long uidValidity = imapFolder.getUIDValidity();
+    if (uidValidity != cursor.getUidValidity()) {
+      LOGGER.warn("UIDVALIDITY of folder {} changed from {} to {}, the emails already in the folder will be skipped",
+                  cursor.getFolder(), cursor.getUidValidity(), uidValidity);
+      cursor.reset(uidValidity, getLastUid(imapFolder));
+    }
+
+    long lastUid = cursor.getLastUid();
+    // "UID n:*" always returns the last email of the folder, even when its UID is lower than n.
+    Message[] messages = stream(imapFolder.getMessagesByUID(lastUid + 1, LASTUID))
+        .filter(message -> message != null && getUID(imapFolder, message) > lastUid)
+        .toArray(Message[]::new);
+    List<Message> dispatched = new ArrayList<>();
+    try {
+      for (StagedEmail<BaseEmailAttributes> stagedEmail : emailMatcher.<BaseEmailAttributes>prefetch(imapFolder, messages)) {
+        if (!running) {
+          break;
+        }
+        Message message = stagedEmail.getMessage();
+        BaseEmailAttributes attributes = emailMatcher.match(stagedEmail, imapFolder);
+        if (attributes != null) {
+          StoredEmailContent content;
+          try {
+            content = storedEmailContentFactory.fromMessage(message, overrides.getAttachmentNamingStrategy());
+          } catch (Exception e) {
+            LOGGER.error(format("Error reading email [%s], it will be retried on the next poll: %s", attributes.getId(),
+                                e.getMessage()),
+                         e);
+            break;
+          }
+          sourceCallback.handle(Result.<StoredEmailContent, BaseEmailAttributes>builder()
+              .output(content)
+              .attributes(attributes)
+              .build());
+          if (deleteAfterRetrieve) {
+            dispatched.add(message);
+          }
+        }
+        cursor.advance(imapFolder.getUID(message));
+      }
+    } finally {
+      storeCursor();
+      deleteEmails(imapFolder, dispatched);
+    }
+  }
+
+  /**
+   * Marks the dispatched emails as deleted with a single command and expunges only them, by UID. If the server does not support
+   * UIDPLUS they are expunged when the folder is closed.
+   */
+  private void deleteEmails(IMAPFolder imapFolder, List<Message> messages) {
+    if (messages.isEmpty()) {
+      return;
+    }
+    Message[] deleted = messages.toArray(new Message[0]);
+    try {
+      imapFolder.setFlags(deleted, new Flags(DELETED), true);
+    } catch (MessagingException e) {
+      LOGGER.error(format("Error deleting the dispatched emails from folder [%s]: %s", folder, e.getMessage()), e);
+      return;
+    }
+    try {
+      imapFolder.expunge(deleted);
+    } catch (MessagingException e) {
+      LOGGER.debug("Could not expunge the deleted emails by UID, they will be expunged when the folder is closed", e);
+      pendingExpunge = true;
+    }
+  }
+
+  /**
+   * Loads the stored cursor of the folder, or places a new one after the last email of the folder.
+   */
+  private void loadCursor(IMAPFolder imapFolder) throws MessagingException {
+    cursor = cursorStore.load(imapFolder.getFullName());
+    if (!cursor.hasUidValidity()) {
+      cursor.reset(imapFolder.getUIDValidity(), getLastUid(imapFolder));
+      storeCursor();
+    } else {
+      LOGGER.debug("Resuming listening from {}", cursor);
+    }
+  }
+
+  private void storeCursor() {
+    cursorStore.store(cursor);
+  }
+}
@@ -10,9 +10,11 @@ import static org.mule.extension.email.internal.util.EmailConnectorConstants.CON
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.COUNT_ALL;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_PAGE_SIZE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_PAGINATION_OFFSET;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_READ_AHEAD_PAGES;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.INBOX_FOLDER;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.PAGE_SIZE_ERROR_MESSAGE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.PAGINATION_OFFSET_ERROR_MESSAGE;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.READ_AHEAD_PAGES_ERROR_MESSAGE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.UNLIMITED;
 import static org.mule.runtime.api.meta.ExpressionSupport.NOT_SUPPORTED;
 import static org.mule.runtime.api.util.Preconditions.checkArgument;
@@ -24,6 +26,7 @@ import static javax.mail.Folder.READ_ONLY;
 import static javax.mail.Folder.READ_WRITE;
 
 import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
 import org.mule.extension.email.api.attributes.IMAPCountFilter;
 import org.mule.extension.email.api.attributes.IMAPEmailAttributes;
 import org.mule.extension.email.api.exception.EmailAccessingFolderErrorTypeProvider;
@@ -44,6 +47,7 @@ import org.mule.extension.email.internal.mailbox.MailboxAccessConfiguration;
 import org.mule.extension.email.internal.mailbox.MailboxConnection;
 import org.mule.extension.email.internal.resolver.IMAPArrayStoredEmailContentTypeResolver;
 import org.mule.extension.email.internal.value.MailboxFolderValueProvider;
+import org.mule.runtime.api.scheduler.SchedulerService;
 import org.mule.runtime.extension.api.annotation.Expression;
 import org.mule.runtime.extension.api.annotation.error.Throws;
 import org.mule.runtime.extension.api.annotation.metadata.OutputResolver;
@@ -59,10 +63,14 @@ import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.streaming.PagingProvider;
 import org.mule.runtime.extension.api.runtime.streaming.StreamingHelper;
 
+import java.util.List;
+
+import javax.inject.Inject;
 import javax.mail.Folder;
 import javax.mail.FolderNotFoundException;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.search.SearchTerm;
 
 import com.sun.mail.imap.IMAPFolder;
 
@@ -76,6 +84,9 @@ public class IMAPOperations {
   private final ExpungeCommand expungeCommand = new ExpungeCommand();
   private final SetFlagCommand setFlagCommand = new SetFlagCommand();
 
+  @Inject
+  private SchedulerService schedulerService;
+
   /**
    * List all the emails (with pagination) in the configured imap mailBoxFolder that match with the specified {@code imapMatcher}
    * criteria.
@@ -89,6 +100,12 @@ public class IMAPOperations {
    * @param limit               Maximum amount of emails retrieved by the operation. Take into account that this limit only applies to the emails effectively
    *                            retrieved by the operation (the ones which matched the {@link IMAPEmailPredicateBuilder} criteria) and doesn't
    *                            imply any restriction over the amount of emails being retrieved from the mailbox server.
+   * @param remoteSearchFilterEnabled If the matcher should be resolved by the server with a SEARCH command, so only the matching
+   *                                  emails are fetched, or only on the client side. Defaults to false because some servers are
+   *                                  not fully compliant with the search terms of RFC 3501.
+   * @param readAheadPages      Maximum amount of pages fetched in the background while the flow processes the current one. Each
+   *                            fetched page is kept in memory until the flow requests it. Defaults to 0, which fetches each page
+   *                            when requested.
    * @return an {@link PagingProvider} which provides {@link Result}s composed by the email's body and its corresponding {@link IMAPEmailAttributes}.
    */
   @Summary("Lists the emails in the given IMAP Mailbox Folder")
@@ -107,17 +124,24 @@ public class IMAPOperations {
                                                                                                          defaultValue = DEFAULT_PAGINATION_OFFSET) int paginationOffset,
                                                                                                      @Optional(
                                                                                                          defaultValue = UNLIMITED) int limit,
+                                                                                                     @DisplayName("Enable Remote Search") @Optional(
+                                                                                                         defaultValue = "false") boolean remoteSearchFilterEnabled,
+                                                                                                     @Optional(
+                                                                                                         defaultValue = DEFAULT_READ_AHEAD_PAGES) int readAheadPages,
                                                                                                      StreamingHelper streamingHelper,
                                                                                                      @ParameterGroup(
                                                                                                          name = CONFIG_OVERRIDES_PARAM_GROUP) MailboxAccessConfigOverrides overrides) {
     checkArgument(pageSize > 0, format(PAGE_SIZE_ERROR_MESSAGE, pageSize));
     checkArgument(paginationOffset >= 0, format(PAGINATION_OFFSET_ERROR_MESSAGE, pageSize));
-    return new PagingProviderEmailDelegate<>(config, mailboxFolder, imapMatcher, pageSize, paginationOffset, limit,
+    checkArgument(readAheadPages >= 0, format(READ_AHEAD_PAGES_ERROR_MESSAGE, readAheadPages));
+    SearchTerm searchTerm = remoteSearchFilterEnabled && imapMatcher != null
+        ? new IMAPRemoteSearchTerm(imapMatcher).getRemoteSearchTerm().orElse(null)
+        : null;
+    return new PagingProviderEmailDelegate<>(config, mailboxFolder, imapMatcher, searchTerm, pageSize, paginationOffset, limit,
                                              deleteAfterRetrieve,
-                                             (connection, attributes) -> setFlagCommand.setByUID(connection, mailboxFolder,
-                                                                                                 DELETED,
-                                                                                                 parseLong(attributes.getId())),
-                                             streamingHelper, overrides);
+                                             (connection, emails) -> deleteByUIDs(connection, mailboxFolder, emails),
+                                             streamingHelper, overrides)
+        .readAhead(readAheadPages, readAheadPages > 0 ? schedulerService.ioScheduler() : null);
   }
 
   /**
@@ -303,4 +327,12 @@ public class IMAPOperations {
     }
   }
 
+  /**
+   * Deletes the given emails with a single {@code UID STORE} and, if the server supports UIDPLUS, a single {@code UID EXPUNGE}.
+   */
+  private void deleteByUIDs(MailboxConnection connection, String mailboxFolder, List<BaseEmailAttributes> emails) {
+    long[] emailIds = emails.stream().mapToLong(attributes -> parseLong(attributes.getId())).toArray();
+    Message[] deleted = setFlagCommand.setByUIDs(connection, mailboxFolder, DELETED, emailIds);
+    expungeCommand.expungeEmails(connection, mailboxFolder, deleted);
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static java.lang.Long.parseLong;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+
+/**
+ * Position of the {@link IMAPPollingSource} in a mailbox folder: the highest UID already dispatched and the UIDVALIDITY of the
+ * folder that UID belongs to. When a poll stops before scanning all the emails of the folder, the cursor also keeps the UID of
+ * the last scanned email, so the next poll resumes right after it.
+ * <p>
+ * The cursor is stored as a compact {@link String} so it can be persisted in an object store without depending on the connector
+ * classes.
+ *
+ * @since 2.0
+ */
+final class IMAPPollCursor {
+
+  private static final long UNKNOWN = -1;
+  private static final String SEPARATOR = ":";
+
+  private final String folder;
+  private long uidValidity;
+  private long lastUid;
+  private long resumeUid;
+
+  IMAPPollCursor(String folder) {
+    this(folder, UNKNOWN, UNKNOWN, UNKNOWN);
+  }
+
+  private IMAPPollCursor(String folder, long uidValidity, long lastUid, long resumeUid) {
+    this.folder = folder;
+    this.uidValidity = uidValidity;
+    this.lastUid = lastUid;
+    this.resumeUid = resumeUid;
+  }
+
+  /**
+   * Parses a cursor previously serialized with {@link #serialize()}.
+   *
+   * @param folder the folder the cursor belongs to.
+   * @param value  the serialized cursor.
+   * @return the parsed cursor, or an empty cursor if the value can not be parsed.
+   */
+  static IMAPPollCursor parse(String folder, String value) {
+    if (value != null) {
+      String[] parts = value.split(SEPARATOR);
+      if (parts.length == 2 || parts.length == 3) {
+        try {
+          return new IMAPPollCursor(folder, parseLong(parts[0]), parseLong(parts[1]),
+                                    parts.length == 3 ? parseLong(parts[2]) : UNKNOWN);
+        } catch (NumberFormatException e) {
+          // Ignore the corrupted value, the cursor will start from scratch.
+        }
+      }
+    }
+    return new IMAPPollCursor(folder);
+  }
+
+  /**
+   * @return this cursor as a compact {@link String}.
+   */
+  String serialize() {
+    String value = uidValidity + SEPARATOR + lastUid;
+    return hasResume() ? value + SEPARATOR + resumeUid : value;
+  }
+
+  /**
+   * Moves the cursor to a new UIDVALIDITY, placing it at {@code lastUid}.
+   */
+  void reset(long uidValidity, long lastUid) {
+    this.uidValidity = uidValidity;
+    this.lastUid = lastUid;
+    this.resumeUid = UNKNOWN;
+  }
+
+  /**
+   * Moves the cursor to a new UIDVALIDITY with no known position.
+   */
+  void reset(long uidValidity) {
+    reset(uidValidity, UNKNOWN);
+  }
+
+  /**
+   * Moves the cursor forward to {@code uid}, if it is higher than the current position.
+   */
+  void advance(long uid) {
+    lastUid = max(lastUid, uid);
+  }
+
+  /**
+   * Records that the scan of the folder stopped at {@code uid}, so the next scan resumes right after it.
+   */
+  void resumeAfter(long uid) {
+    resumeUid = uid;
+  }
+
+  /**
+   * Forgets the UID where the last scan stopped.
+   */
+  void clearResume() {
+    resumeUid = UNKNOWN;
+  }
+
+  /**
+   * @return the UID after which the next scan of the folder must start: the highest one between the last dispatched UID and
+   *         the UID where the last scan stopped, or -1 if both are unknown.
+   */
+  long getScanPosition() {
+    return max(lastUid, resumeUid);
+  }
+
+  long getResumeUid() {
+    return resumeUid;
+  }
+
+  boolean hasResume() {
+    return resumeUid != UNKNOWN;
+  }
+
+  String getFolder() {
+    return folder;
+  }
+
+  long getUidValidity() {
+    return uidValidity;
+  }
+
+  long getLastUid() {
+    return lastUid;
+  }
+
+  boolean hasUidValidity() {
+    return uidValidity != UNKNOWN;
+  }
+
+  boolean hasPosition() {
+    return lastUid != UNKNOWN;
+  }
+
+  @Override
+  public String toString() {
+    return hasResume() ? format("%s (UIDVALIDITY %s, last UID %s, resume after UID %s)", folder, uidValidity, lastUid, resumeUid)
+        : format("%s (UIDVALIDITY %s, last UID %s)", folder, uidValidity, lastUid);
+  }
+}
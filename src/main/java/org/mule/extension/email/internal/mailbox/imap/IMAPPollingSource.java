@@ -6,13 +6,39 @@
  */
 package org.mule.extension.email.internal.mailbox.imap;
 
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static java.util.Arrays.stream;
+import static java.util.Collections.singletonList;
+import static java.time.ZoneId.systemDefault;
 import static java.util.Optional.of;
+import static javax.mail.Flags.Flag.DELETED;
+import static javax.mail.Folder.HOLDS_MESSAGES;
+import static javax.mail.Folder.READ_WRITE;
+import static javax.mail.UIDFolder.LASTUID;
+import static org.mule.extension.email.api.StartPosition.FROM_DATE;
+import static org.mule.extension.email.api.StartPosition.FROM_NOW;
+import static org.mule.extension.email.api.UIDValidityResyncPolicy.SKIP_EXISTING;
+import static org.mule.extension.email.internal.mailbox.imap.IMAPCursorStore.getLastUid;
+import static org.mule.extension.email.internal.mailbox.imap.IMAPCursorStore.getUID;
+import static org.mule.extension.email.internal.mailbox.imap.IMAPRemoteSearchTerm.DATE_MARGIN_MILLIS;
+import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
+import static org.mule.runtime.extension.api.runtime.source.SourceClusterSupport.DEFAULT_PRIMARY_NODE_ONLY;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import org.mule.extension.email.api.StartPosition;
 import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.UIDValidityResyncPolicy;
+import org.mule.extension.email.api.exception.EmailListException;
+import org.mule.extension.email.api.exception.EmailNotFoundException;
+import org.mule.extension.email.api.exception.ExpungeFolderException;
 import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.api.attributes.IMAPEmailAttributes;
 import org.mule.extension.email.api.predicate.IMAPEmailPredicateBuilder;
+import org.mule.extension.email.internal.commands.ExpungeCommand;
+import org.mule.extension.email.internal.commands.SetFlagCommand;
 import org.mule.extension.email.internal.mailbox.BaseMailboxPollingSource;
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
 import org.mule.extension.email.internal.resolver.StoredEmailContentTypeResolver;
 
 import org.mule.runtime.api.connection.ConnectionException;
@@ -22,28 +48,52 @@ import org.mule.runtime.extension.api.annotation.metadata.MetadataScope;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+import org.mule.runtime.extension.api.annotation.source.ClusterSupport;
 import org.mule.runtime.extension.api.annotation.source.OnBackPressure;
 import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.mule.runtime.extension.api.runtime.source.BackPressureContext;
 import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
+import org.mule.runtime.extension.api.runtime.source.SourceResult;
 import org.slf4j.Logger;
 
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.protocol.Status;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
 import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
+import javax.mail.search.ComparisonTerm;
+import javax.mail.search.ReceivedDateTerm;
 
 
 
 /**
- * Retrieves all the emails from an IMAP mailbox folder, watermark can be enabled for polled items.
+ * Retrieves all the emails from one or more IMAP mailbox folders, watermark can be enabled for polled items.
  *
  * @since 1.1
  */
 @DisplayName("On New Email - IMAP")
 @Alias("listener-imap")
 @MetadataScope(outputResolver = StoredEmailContentTypeResolver.class)
+@ClusterSupport(DEFAULT_PRIMARY_NODE_ONLY)
 public class IMAPPollingSource extends BaseMailboxPollingSource {
 
   private static final Logger LOGGER = getLogger(IMAPPollingSource.class);
+  private static final String[] STATUS_ITEMS = {"UIDNEXT", "MESSAGES", "UIDVALIDITY"};
 
   /**
    * If watermark should be applied to the polled emails or not. Default to true.
@@ -70,8 +120,133 @@ public class IMAPPollingSource extends BaseMailboxPollingSource {
   @Optional(defaultValue = "false")
   private boolean remoteSearchFilterEnabled = false;
 
+  /**
+   * What to do when the UIDVALIDITY of the polled folder changes, which invalidates the position stored by this source. Defaults
+   * to RESCAN.
+   */
+  @Parameter
+  @Optional(defaultValue = "RESCAN")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("What to do when the UIDVALIDITY of the polled folder changes")
+  private UIDValidityResyncPolicy uidValidityResyncPolicy;
+
+  /**
+   * From which email a folder is polled the first time, when this source has no stored position for it. Skipping the existing
+   * emails avoids parsing and matching the whole history of a large folder on the first deployment. Only applies when watermark
+   * is enabled. Defaults to ALL.
+   */
+  @Parameter
+  @Optional(defaultValue = "ALL")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("From which email a folder is polled the first time")
+  private StartPosition startPosition;
+
+  /**
+   * The date of the first email dispatched when the start position is FROM_DATE. Emails received before it are skipped.
+   */
+  @Parameter
+  @Optional
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The date of the first email dispatched when the start position is FROM_DATE")
+  private LocalDateTime startDate;
+
+  /**
+   * The maximum amount of emails whose content is fetched in parallel, each one through its own connection to the server. When
+   * greater than 1, a new poll is not skipped while the emails of the previous one are still being processed. Defaults to 1.
+   */
+  @Parameter
+  @Optional(defaultValue = "1")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The maximum amount of emails whose content is fetched in parallel")
+  private int maxConcurrency;
+
+  /**
+   * Whether the body and attachments of the emails are fetched the first time the flow accesses them, instead of before
+   * dispatching them. Flows that only use the attributes of the emails never download their content. The content is read from
+   * the folder leased by this source or, if it was already closed, from a new handle of the folder. This is ignored when emails
+   * are deleted after being retrieved. Defaults to false.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Whether the content of the emails is fetched the first time the flow accesses it")
+  private boolean fetchContentLazily;
+
+  /**
+   * Whether the polled folder is kept selected between polls instead of being closed and selected again on each poll. A
+   * {@code NOOP} command is issued on each poll to keep the connection alive and to get notified of new emails and flag
+   * changes. Deleted emails are expunged as soon as they are marked. Only effective when a single folder is polled. Defaults to
+   * false.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Whether the polled folder is kept selected between polls")
+  private boolean keepFolderOpen;
+
+  /**
+   * The names of the folders to poll emails from, all of them through the same connection. When this parameter or the folder
+   * pattern are set, the folder parameter is ignored.
+   */
+  @Parameter
+  @Optional
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The names of the folders to poll emails from, all of them through the same connection")
+  private List<String> folders;
+
+  /**
+   * A regular expression matched against the full name of every folder of the mailbox, resolved on each poll. The matching
+   * folders are polled, together with the ones listed in the folders parameter, through the same connection. When this parameter
+   * or the folders are set, the folder parameter is ignored.
+   */
+  @Parameter
+  @Optional
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("A regular expression matched against the full name of the mailbox folders to poll")
+  private String folderPattern;
+
+  /**
+   * The amount of partitions the UIDs of the polled folders are split into, so the listener can run on every node of a cluster
+   * with each node processing a disjoint subset of the emails. Requires the listener to run on all the nodes. Defaults to 1.
+   * <p>
+   * The partitions are static: they are not rebalanced when a node goes down, so the emails of its partition are not processed
+   * until it is back. When the UIDs are partitioned, the watermark is disabled and each partition relies only on its own UID
+   * cursor.
+   */
+  @Parameter
+  @Optional(defaultValue = "1")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The amount of partitions the UIDs of the polled folders are split into")
+  private int shardCount;
+
+  /**
+   * The partition of UIDs processed by this listener, between 0 and the shard count minus 1. Every node must be configured with
+   * a different index, usually through a node specific property, and every index must be assigned to a running node or the
+   * emails of that partition are never processed. Defaults to 0.
+   */
+  @Parameter
+  @Optional(defaultValue = "0")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("The partition of UIDs processed by this listener")
+  private int shardIndex;
+
+  private final SetFlagCommand setFlagCommand = new SetFlagCommand();
+
+  private final ExpungeCommand expungeCommand = new ExpungeCommand();
+
   private IMAPRemoteSearchTerm remoteSearchTerm;
 
+  private Pattern compiledFolderPattern;
+
+  /**
+   * The polling state of each one of the polled folders, by folder full name.
+   */
+  private Map<String, IMAPFolderPollState> folderStates;
+
+  private IMAPUIDShard shard;
+
+  private final IMAPCursorStore cursorStore = new IMAPCursorStore(this::getPollStateStore, key -> shard.qualify(key));
+
   /**
    * {@inheritDoc}
    */
@@ -85,35 +260,93 @@ public class IMAPPollingSource extends BaseMailboxPollingSource {
    */
   @Override
   protected boolean isWatermarkEnabled() {
-    return watermarkEnabled;
+    // The watermark of the source is shared by the nodes, which dispatch interleaved UIDs. Each partition keeps its own cursor.
+    return watermarkEnabled && !shard.isPartitioned();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int getMaxConcurrency() {
+    return Math.max(1, maxConcurrency);
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * All the emails are marked with a single {@code UID STORE} command and, if the server supports UIDPLUS, removed with a single
+   * {@code UID EXPUNGE} command. Otherwise they are expunged when the folder is closed, or right away if it is kept open.
+   */
+  @Override
+  protected void deleteEmails(MailboxConnection connection, String folderName, List<BaseEmailAttributes> emails) {
+    long[] emailIds = emails.stream().mapToLong(attributes -> parseLong(attributes.getId())).toArray();
+    Message[] deleted = setFlagCommand.setByUIDs(connection, folderName, DELETED, emailIds);
+    if (!expungeCommand.expungeEmails(connection, folderName, deleted) && keepFolderOpen) {
+      // The folder is not closed after the poll, so the deleted emails must be expunged now.
+      try {
+        connection.getFolder(folderName, READ_WRITE).expunge();
+      } catch (MessagingException e) {
+        throw new ExpungeFolderException(format("Error while expunging folder [%s]", folderName), e);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Sequence numbers are not stable between connections, so the email is looked up by its UID.
+   */
+  @Override
+  protected Message getMessage(Folder folder, BaseEmailAttributes attributes) throws MessagingException {
+    Message message = ((IMAPFolder) folder).getMessageByUID(parseLong(attributes.getId()));
+    if (message == null) {
+      throw new EmailNotFoundException(format("No email was found with id: [%s]", attributes.getId()));
+    }
+    return message;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean isFolderKeptOpen() {
+    return keepFolderOpen;
   }
 
+  /**
+   * {@inheritDoc}
+   */
   @Override
-  protected void emailDispatchedToFlow() {
-    beginUsingFolder();
+  protected boolean isContentFetchedLazily() {
+    return fetchContentLazily;
   }
 
+  /**
+   * {@inheritDoc}
+   */
   @Override
-  protected void emailOnFlowError() {
-    endUsingFolder();
+  protected boolean isFolderLeasedUntilProcessed() {
+    return true;
   }
 
   @Override
   public void onRejectedItem(Result<StoredEmailContent, BaseEmailAttributes> result,
                              SourceCallbackContext sourceCallbackContext) {
-    endUsingFolder();
+    releaseFolder(sourceCallbackContext);
     super.onRejectedItem(result, sourceCallbackContext);
   }
 
   @OnBackPressure
-  public void onBackPressure() {
+  public void onBackPressure(BackPressureContext backPressureContext) {
     LOGGER.warn("OnBackPressure activated.");
-    endUsingFolder();
+    backPressureApplied();
+    releaseFolder(backPressureContext.getSourceCallbackContext());
   }
 
   @OnTerminate
-  public void onTerminate() {
-    endUsingFolder();
+  public void onTerminate(SourceResult sourceResult) {
+    releaseFolder(sourceResult.getSourceCallbackContext());
   }
 
   @Override
@@ -122,20 +355,285 @@ public class IMAPPollingSource extends BaseMailboxPollingSource {
     if (this.getPredicateBuilder().isPresent()) {
       remoteSearchTerm = new IMAPRemoteSearchTerm(this.getPredicateBuilder().get());
     }
+    compiledFolderPattern = folderPattern != null ? Pattern.compile(folderPattern) : null;
+    folderStates = new HashMap<>();
+    if (startPosition == FROM_DATE && startDate == null) {
+      throw new IllegalArgumentException("A start date must be configured when the start position is FROM_DATE");
+    }
+    shard = new IMAPUIDShard(shardCount, shardIndex);
+    if (shard.isPartitioned()) {
+      LOGGER.info("Polling the emails of shard {} of folder {}", shard, getFolderName());
+      if (watermarkEnabled) {
+        LOGGER.warn("The watermark is disabled because the UIDs of folder {} are partitioned in {} shards, only the UID "
+            + "cursor of shard {} prevents processing emails again", getFolderName(), shardCount, shard);
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Resolves the configured folder list and folder pattern, or the folder parameter if none of them is set. Folder names are
+   * normalized to their full names so the state of each folder is tracked under a single key.
+   */
+  @Override
+  protected List<String> getPolledFolders(MailboxConnection connection) {
+    if ((folders == null || folders.isEmpty()) && compiledFolderPattern == null) {
+      return singletonList(getFullName(connection, getFolderName()));
+    }
+
+    Set<String> polledFolders = new LinkedHashSet<>();
+    if (folders != null) {
+      folders.forEach(name -> polledFolders.add(getFullName(connection, name)));
+    }
+    if (compiledFolderPattern != null) {
+      try {
+        for (Folder candidate : connection.listFolders()) {
+          if ((candidate.getType() & HOLDS_MESSAGES) != 0 && compiledFolderPattern.matcher(candidate.getFullName()).matches()) {
+            polledFolders.add(candidate.getFullName());
+          }
+        }
+      } catch (MessagingException e) {
+        LOGGER.warn("Error listing the folders matching [{}]: {}", folderPattern, e.getMessage());
+      }
+    }
+    return new ArrayList<>(polledFolders);
   }
 
+  private String getFullName(MailboxConnection connection, String folderName) {
+    try {
+      return connection.lookupFolder(folderName).getFullName();
+    } catch (MessagingException e) {
+      return folderName;
+    }
+  }
+
+  /**
+   * @return the polling state of the folder, loading its cursor from the object store the first time the folder is polled.
+   */
+  private IMAPFolderPollState getFolderState(String folderName) {
+    return folderStates.computeIfAbsent(folderName, name -> {
+      IMAPFolderPollState state = new IMAPFolderPollState(watermarkEnabled ? cursorStore.load(name) : new IMAPPollCursor(name));
+      if (state.getCursor().hasPosition()) {
+        LOGGER.debug("Resuming polling from {}", state.getCursor());
+      }
+      return state;
+    });
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * When watermark is enabled, emails with an UID lower or equal than the highest one already dispatched can never be dispatched
+   * again, so only the {@code UID n+1:*} range is fetched from the server. If the previous poll stopped before scanning all the
+   * emails, the range starts right after the last scanned one.
+   */
   @Override
   protected Message[] getMessages(Folder openFolder) {
+    IMAPFolder imapFolder = (IMAPFolder) openFolder;
+    IMAPPollCursor cursor = getFolderState(imapFolder.getFullName()).getCursor();
+    try {
+      long uidValidity = imapFolder.getUIDValidity();
+      if (uidValidity != cursor.getUidValidity()) {
+        resync(imapFolder, cursor, uidValidity);
+      }
+
+      // Without watermark every poll scans the whole folder, unless the previous poll stopped before reaching its end.
+      long scanPosition = watermarkEnabled ? cursor.getScanPosition() : cursor.getResumeUid();
+      cursor.clearResume();
+      if (scanPosition < 0) {
+        return searchMessages(openFolder, getOwnedMessages(imapFolder, null));
+      }
+
+      // "UID n:*" always returns the last email of the folder, even when its UID is lower than n.
+      Message[] newMessages = stream(imapFolder.getMessagesByUID(scanPosition + 1, LASTUID))
+          .filter(message -> message != null && getUID(imapFolder, message) > scanPosition)
+          .filter(message -> shard.owns(getUID(imapFolder, message)))
+          .toArray(Message[]::new);
+      return newMessages.length == 0 ? newMessages : searchMessages(openFolder, newMessages);
+    } catch (MessagingException e) {
+      LOGGER.debug("Error fetching emails by UID range, all the emails of the folder will be scanned", e);
+      return searchMessages(openFolder, getOwnedMessages(imapFolder, null));
+    }
+  }
+
+  /**
+   * @return the emails of the given {@code messages}, or of the whole folder if they are {@code null}, that belong to the shard
+   *         of this source. If the UIDs are not split, {@code messages} is returned as is.
+   */
+  private Message[] getOwnedMessages(IMAPFolder imapFolder, Message[] messages) {
+    if (!shard.isPartitioned()) {
+      return messages;
+    }
+    try {
+      Message[] candidates = messages != null ? messages : imapFolder.getMessages();
+      FetchProfile uidProfile = new FetchProfile();
+      uidProfile.add(UIDFolder.FetchProfileItem.UID);
+      imapFolder.fetch(candidates, uidProfile);
+      return stream(candidates).filter(message -> shard.owns(getUID(imapFolder, message))).toArray(Message[]::new);
+    } catch (MessagingException e) {
+      throw new EmailListException("Error retrieving the UIDs of the emails: " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * When watermark is enabled only emails that arrived after the last poll can be dispatched, so an IMAP
+   * {@code STATUS (UIDNEXT MESSAGES UIDVALIDITY)} command is issued and the poll is skipped if the folder did not change since
+   * the last completed poll. Flag changes are not checked, so an email that did not match because of its flags is evaluated again
+   * by the next poll that finds new emails.
+   */
+  @Override
+  protected boolean hasNewEmails(MailboxConnection connection, String folderName) {
+    if (!watermarkEnabled) {
+      return true;
+    }
+
+    IMAPFolderPollState state = getFolderState(folderName);
+    state.setObservedStatus(null);
+    state.setObservedMessageCount(-1);
+    Folder openFolder = keepFolderOpen ? getOpenFolder(folderName) : null;
+    if (openFolder != null) {
+      return hasChangedSinceLastPoll((IMAPFolder) openFolder, state);
+    }
+
+    try {
+      IMAPFolder imapFolder = (IMAPFolder) connection.lookupFolder(folderName);
+      Status status = (Status) imapFolder.doCommand(protocol -> protocol.status(imapFolder.getFullName(), STATUS_ITEMS));
+      if (status == null || status.uidnext == -1) {
+        return true;
+      }
+      state.setObservedStatus(status);
+      Status lastPolledStatus = state.getLastPolledStatus();
+      return lastPolledStatus == null
+          || status.uidnext != lastPolledStatus.uidnext
+          || status.uidvalidity != lastPolledStatus.uidvalidity;
+    } catch (Exception e) {
+      LOGGER.debug("Error retrieving the STATUS of folder " + folderName + ", it will be polled", e);
+      return true;
+    }
+  }
+
+  /**
+   * Checks a folder kept open between polls with a {@code NOOP} command, which keeps the connection alive and makes the server
+   * notify the new emails and flag changes.
+   */
+  private boolean hasChangedSinceLastPoll(IMAPFolder openFolder, IMAPFolderPollState state) {
+    try {
+      state.watch(openFolder);
+      openFolder.doCommand(protocol -> {
+        protocol.simpleCommand("NOOP", null);
+        return null;
+      });
+      int messageCount = openFolder.getMessageCount();
+      state.setObservedMessageCount(messageCount);
+      boolean notified = state.consumeChanges();
+      return notified || messageCount != state.getLastMessageCount();
+    } catch (MessagingException e) {
+      LOGGER.debug("Error checking open folder " + openFolder.getFullName() + ", it will be polled", e);
+      return true;
+    }
+  }
+
+  @Override
+  protected void pollCompleted(String folderName) {
+    if (!watermarkEnabled) {
+      return;
+    }
+    IMAPFolderPollState state = getFolderState(folderName);
+    IMAPPollCursor cursor = state.getCursor();
+    // A poll that stopped before scanning all the emails must not cause the next one to be skipped.
+    state.setLastPolledStatus(cursor.hasResume() ? null : state.getObservedStatus());
+    state.setLastMessageCount(cursor.hasResume() ? -1 : state.getObservedMessageCount());
+    cursorStore.store(cursor);
+  }
+
+  @Override
+  protected void pollTruncated(String folderName, BaseEmailAttributes lastScanned) {
+    getFolderState(folderName).getCursor().resumeAfter(parseLong(lastScanned.getId()));
+  }
+
+  @Override
+  protected void emailAccepted(BaseEmailAttributes attributes) {
+    if (watermarkEnabled) {
+      getFolderState(((IMAPEmailAttributes) attributes).getFolder()).getCursor().advance(parseLong(attributes.getId()));
+    }
+  }
+
+  /**
+   * Places the cursor in a folder whose UIDVALIDITY is different from the one the cursor belongs to. If the cursor had a
+   * previous UIDVALIDITY, the configured {@link UIDValidityResyncPolicy} is applied.
+   */
+  private void resync(IMAPFolder imapFolder, IMAPPollCursor cursor, long uidValidity) throws MessagingException {
+    if (!cursor.hasUidValidity()) {
+      seed(imapFolder, cursor, uidValidity);
+      return;
+    }
+
+    LOGGER.warn("UIDVALIDITY of folder {} changed from {} to {}, applying the {} resync policy", cursor.getFolder(),
+                cursor.getUidValidity(), uidValidity, uidValidityResyncPolicy);
+    if (uidValidityResyncPolicy == SKIP_EXISTING) {
+      cursor.reset(uidValidity, getLastUid(imapFolder));
+    } else {
+      cursor.reset(uidValidity);
+    }
+  }
+
+  /**
+   * Places the cursor of a folder polled for the first time according to the configured {@link StartPosition}. The position is
+   * resolved from the UIDNEXT of the folder or a server side SEARCH, so the skipped emails are never fetched.
+   */
+  private void seed(IMAPFolder imapFolder, IMAPPollCursor cursor, long uidValidity) throws MessagingException {
+    if (!watermarkEnabled || startPosition == null || startPosition == StartPosition.ALL) {
+      cursor.reset(uidValidity);
+      return;
+    }
+
+    long position = startPosition == FROM_NOW ? getLastUid(imapFolder) : getLastUidReceivedBefore(imapFolder, startDate);
+    LOGGER.info("Starting to poll folder {} after UID {} ({})", cursor.getFolder(), position, startPosition);
+    cursor.reset(uidValidity, position);
+  }
+
+  /**
+   * @return the UID right before the first email of the folder received on or after the given {@code date}, or the UID of the
+   *         last email of the folder if there is none.
+   */
+  private long getLastUidReceivedBefore(IMAPFolder imapFolder, LocalDateTime date) throws MessagingException {
+    Date since = Date.from(date.atZone(systemDefault()).toInstant());
+    // IMAP SEARCH SINCE only compares days, in the time zone of the server, so the search is widened by a day and the emails
+    // found are checked against the exact time.
+    Date searchSince = new Date(since.getTime() - DATE_MARGIN_MILLIS);
+    Message[] candidates = imapFolder.search(new ReceivedDateTerm(ComparisonTerm.GE, searchSince));
+    FetchProfile profile = new FetchProfile();
+    profile.add(UIDFolder.FetchProfileItem.UID);
+    profile.add(FetchProfile.Item.ENVELOPE);
+    imapFolder.fetch(candidates, profile);
+    for (Message candidate : candidates) {
+      Date receivedDate = candidate.getReceivedDate();
+      if (receivedDate == null || !receivedDate.before(since)) {
+        return imapFolder.getUID(candidate) - 1;
+      }
+    }
+    return getLastUid(imapFolder);
+  }
+
+  /**
+   * Applies the remote search term, if enabled, over the given {@code messages} or over the whole folder if they are
+   * {@code null}.
+   */
+  private Message[] searchMessages(Folder openFolder, Message[] messages) {
     if (!(this.remoteSearchFilterEnabled && getPredicateBuilder().isPresent()
         && this.remoteSearchTerm.getRemoteSearchTerm().isPresent())) {
       //Filters will be applied locally.
-      return super.getMessages(openFolder);
+      return messages != null ? messages : super.getMessages(openFolder);
     }
 
     try {
-      return openFolder.search(this.remoteSearchTerm.getRemoteSearchTerm().get());
+      return messages != null ? openFolder.search(this.remoteSearchTerm.getRemoteSearchTerm().get(), messages)
+          : openFolder.search(this.remoteSearchTerm.getRemoteSearchTerm().get());
     } catch (MessagingException e) {
-      return super.getMessages(openFolder);
+      return messages != null ? messages : super.getMessages(openFolder);
     }
   }
 
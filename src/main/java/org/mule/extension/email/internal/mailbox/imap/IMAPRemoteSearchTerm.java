@@ -14,42 +14,64 @@ import static java.util.Optional.of;
 import static java.util.Optional.empty;
 import static java.time.ZoneId.systemDefault;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.mule.extension.email.internal.util.RegexLiterals.requiredLiteral;
 import static javax.mail.Flags.Flag.ANSWERED;
 import static javax.mail.Flags.Flag.DELETED;
 import static javax.mail.Flags.Flag.RECENT;
 import static javax.mail.Flags.Flag.SEEN;
+import static javax.mail.Message.RecipientType.CC;
+import static javax.mail.Message.RecipientType.TO;
 import static javax.mail.search.ComparisonTerm.GE;
+import static javax.mail.search.ComparisonTerm.GT;
 import static javax.mail.search.ComparisonTerm.LE;
+import static javax.mail.search.ComparisonTerm.LT;
 
 import javax.mail.Flags;
 import javax.mail.search.SearchTerm;
 import javax.mail.search.FlagTerm;
-import javax.mail.search.NotTerm;
 import javax.mail.search.AndTerm;
-import javax.mail.search.OrTerm;
 import javax.mail.search.SubjectTerm;
 import javax.mail.search.SentDateTerm;
 import javax.mail.search.ReceivedDateTerm;
 import javax.mail.search.FromStringTerm;
+import javax.mail.search.HeaderTerm;
+import javax.mail.search.RecipientStringTerm;
+import javax.mail.search.SizeTerm;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Date;
 import java.util.Map;
 import java.util.function.Supplier;
 
+/**
+ * Translates an {@link IMAPEmailPredicateBuilder} into a {@link SearchTerm} resolved by the IMAP server.
+ * <p>
+ * Every condition of the matcher that can be expressed as an IMAP search key is pushed down: flag policies, received and sent
+ * date bounds, size bounds, header presence, and the literal text that any subject, from or recipient address, or header value
+ * matched by the configured regular expressions must contain. The resulting term matches a superset of the emails matched by
+ * the predicate, since IMAP searches compare dates by day and texts as case insensitive substrings. The predicate built by the
+ * matcher must still be tested on the emails returned by the server, which leaves out the ones the search could not discard.
+ *
+ * @since 1.1
+ */
 public class IMAPRemoteSearchTerm {
 
   private final static Logger LOGGER = getLogger(IMAPRemoteSearchTerm.class);
 
+  /**
+   * Dates are widened by this amount of milliseconds since the server compares them by day, in its own time zone.
+   */
+  static final long DATE_MARGIN_MILLIS = 24 * 60 * 60 * 1000L;
+
   private IMAPEmailPredicateBuilder imapEmailPredicateBuilder;
   private java.util.Optional<SearchTerm> remoteSearchTerm = empty();
 
   public IMAPRemoteSearchTerm(IMAPEmailPredicateBuilder predicateBuilder) {
     this.imapEmailPredicateBuilder = predicateBuilder;
 
-    HashMap<Flags.Flag, Supplier<EmailFilterPolicy>> flagMatcherMap = new HashMap();
+    Map<Flags.Flag, Supplier<EmailFilterPolicy>> flagMatcherMap = new LinkedHashMap<>();
 
     flagMatcherMap.put(ANSWERED, () -> this.imapEmailPredicateBuilder.getAnswered());
     flagMatcherMap.put(DELETED, () -> this.imapEmailPredicateBuilder.getDeleted());
@@ -57,136 +79,92 @@ public class IMAPRemoteSearchTerm {
     flagMatcherMap.put(SEEN, () -> this.imapEmailPredicateBuilder.getSeen());
 
     try {
-      this.remoteSearchTerm = buildSearchFilter(flagMatcherMap);
+      List<SearchTerm> terms = new ArrayList<>();
+
+      addFlagTerms(flagMatcherMap, terms);
+
+      String subjectLiteral = requiredLiteral(this.imapEmailPredicateBuilder.getSubjectRegex());
+      if (subjectLiteral != null) {
+        terms.add(new SubjectTerm(subjectLiteral));
+      }
+
+      String fromLiteral = requiredLiteral(this.imapEmailPredicateBuilder.getFromRegex());
+      if (fromLiteral != null) {
+        terms.add(new FromStringTerm(fromLiteral));
+      }
+
+      String toLiteral = requiredLiteral(this.imapEmailPredicateBuilder.getToRegex());
+      if (toLiteral != null) {
+        terms.add(new RecipientStringTerm(TO, toLiteral));
+      }
+
+      String ccLiteral = requiredLiteral(this.imapEmailPredicateBuilder.getCcRegex());
+      if (ccLiteral != null) {
+        terms.add(new RecipientStringTerm(CC, ccLiteral));
+      }
 
-      if (!this.remoteSearchTerm.isPresent()) {
-        return;
+      if (this.imapEmailPredicateBuilder.getHeaderRegexes() != null) {
+        for (Map.Entry<String, String> headerRegex : this.imapEmailPredicateBuilder.getHeaderRegexes().entrySet()) {
+          // An empty value matches every email that carries the header.
+          String valueLiteral = requiredLiteral(headerRegex.getValue());
+          terms.add(new HeaderTerm(headerRegex.getKey(), valueLiteral != null ? valueLiteral : ""));
+        }
       }
 
-      List<SearchTerm> dateAndRegexFilters = new ArrayList<>();
+      // IMAP only supports strict size comparisons. A bound at the int extreme matches every email and would overflow, so it
+      // is not pushed down.
+      Integer minSize = this.imapEmailPredicateBuilder.getMinSize();
+      if (minSize != null && minSize > Integer.MIN_VALUE) {
+        terms.add(new SizeTerm(GT, minSize - 1));
+      }
 
-      if (this.imapEmailPredicateBuilder.getSubjectRegex() != null) {
-        SubjectTerm subjectTerm = new SubjectTerm(this.imapEmailPredicateBuilder.getSubjectRegex());
-        dateAndRegexFilters.add(subjectTerm);
+      Integer maxSize = this.imapEmailPredicateBuilder.getMaxSize();
+      if (maxSize != null && maxSize < Integer.MAX_VALUE) {
+        terms.add(new SizeTerm(LT, maxSize + 1));
       }
 
       if (this.imapEmailPredicateBuilder.getReceivedSince() != null) {
-        Date receivedSinceDate = convertLocalDateTimeToDate(this.imapEmailPredicateBuilder.getReceivedSince());
-        ReceivedDateTerm receivedDateTerm = new ReceivedDateTerm(GE, receivedSinceDate);
-        dateAndRegexFilters.add(receivedDateTerm);
+        terms.add(new ReceivedDateTerm(GE, toDate(this.imapEmailPredicateBuilder.getReceivedSince(), -DATE_MARGIN_MILLIS)));
       }
 
       if (this.imapEmailPredicateBuilder.getReceivedUntil() != null) {
-        Date receivedUntilDate = convertLocalDateTimeToDate(this.imapEmailPredicateBuilder.getReceivedUntil());
-        ReceivedDateTerm receivedDateTerm = new ReceivedDateTerm(LE, receivedUntilDate);
-        dateAndRegexFilters.add(receivedDateTerm);
+        terms.add(new ReceivedDateTerm(LE, toDate(this.imapEmailPredicateBuilder.getReceivedUntil(), DATE_MARGIN_MILLIS)));
       }
 
       if (this.imapEmailPredicateBuilder.getSentSince() != null) {
-        Date sentSinceDate = convertLocalDateTimeToDate(this.imapEmailPredicateBuilder.getSentSince());
-        SentDateTerm sentDateTerm = new SentDateTerm(GE, sentSinceDate);
-        dateAndRegexFilters.add(sentDateTerm);
+        terms.add(new SentDateTerm(GE, toDate(this.imapEmailPredicateBuilder.getSentSince(), -DATE_MARGIN_MILLIS)));
       }
 
       if (this.imapEmailPredicateBuilder.getSentUntil() != null) {
-        Date sentUntilDate = convertLocalDateTimeToDate(this.imapEmailPredicateBuilder.getSentUntil());
-        SentDateTerm sentDateTerm = new SentDateTerm(LE, sentUntilDate);
-        dateAndRegexFilters.add(sentDateTerm);
+        terms.add(new SentDateTerm(LE, toDate(this.imapEmailPredicateBuilder.getSentUntil(), DATE_MARGIN_MILLIS)));
       }
 
-      if (this.imapEmailPredicateBuilder.getFromRegex() != null) {
-        FromStringTerm fromTerm = new FromStringTerm(this.imapEmailPredicateBuilder.getFromRegex());
-        dateAndRegexFilters.add(fromTerm);
+      if (terms.size() == 1) {
+        this.remoteSearchTerm = of(terms.get(0));
+      } else if (!terms.isEmpty()) {
+        this.remoteSearchTerm = of(new AndTerm(terms.toArray(new SearchTerm[0])));
       }
-
-      if (!dateAndRegexFilters.isEmpty()) {
-        SearchTerm[] additionalFiltersArray = new SearchTerm[dateAndRegexFilters.size()];
-        dateAndRegexFilters.toArray(additionalFiltersArray);
-        this.remoteSearchTerm = of(new AndTerm(this.remoteSearchTerm.get(), new AndTerm(additionalFiltersArray)));
-      }
-
     } catch (Exception e) {
       LOGGER.error("Error occurred building imap matcher. Server side filtering will not be applied. {}", e);
     }
   }
 
-  private java.util.Optional<SearchTerm> buildSearchFilter(HashMap<Flags.Flag, Supplier<EmailFilterPolicy>> flagMatcherMap) {
-    AndTerm requireTerm = null;
-    OrTerm includeTerm = null;
-    NotTerm excludeTerm = null;
-    List<FlagTerm> andTerms = new ArrayList<>();
-    List<FlagTerm> andNegatedTerms = new ArrayList<>();
-    List<FlagTerm> orTerms = new ArrayList<>();
-
+  /**
+   * Adds a term for each flag policy that filters emails. {@link EmailFilterPolicy#INCLUDE} accepts every email, so it adds no
+   * term.
+   */
+  private void addFlagTerms(Map<Flags.Flag, Supplier<EmailFilterPolicy>> flagMatcherMap, List<SearchTerm> terms) {
     for (Map.Entry<Flags.Flag, Supplier<EmailFilterPolicy>> flagMatcherEntry : flagMatcherMap.entrySet()) {
       EmailFilterPolicy policy = flagMatcherEntry.getValue().get();
-      if (policy == null) {
+      if (policy == null || !policy.asBoolean().isPresent()) {
         continue;
       }
-
-      FlagTerm flagTerm = getFlagTerm(flagMatcherEntry.getKey(), true);
-
-      if (!policy.asBoolean().isPresent()) {
-        //This is an INCLUDE
-        orTerms.add(flagTerm);
-      } else if (policy.asBoolean().get().booleanValue()) {
-        andTerms.add(flagTerm);
-      } else {
-        andNegatedTerms.add(flagTerm);
-      }
+      terms.add(new FlagTerm(new Flags(flagMatcherEntry.getKey()), policy.asBoolean().get()));
     }
-
-    if (andTerms.isEmpty() && andNegatedTerms.isEmpty() && orTerms.isEmpty()) {
-      // No matcher
-      return empty();
-    }
-
-    FlagTerm[] orTermsArray = new FlagTerm[orTerms.size()];
-    orTerms.toArray(orTermsArray);
-    includeTerm = new OrTerm(orTermsArray);
-
-    if (andTerms.isEmpty() && andNegatedTerms.isEmpty()) {
-      return of(includeTerm);
-    }
-
-    FlagTerm[] andTermsArray = new FlagTerm[andTerms.size()];
-    andTerms.toArray(andTermsArray);
-    requireTerm = new AndTerm(andTermsArray);
-
-    FlagTerm[] negatedAndTermsArray = new FlagTerm[andNegatedTerms.size()];
-    andNegatedTerms.toArray(negatedAndTermsArray);
-    excludeTerm = new NotTerm(new OrTerm(negatedAndTermsArray));
-
-    if (orTerms.isEmpty()) {
-      if (!andNegatedTerms.isEmpty() && !andTerms.isEmpty()) {
-        return of(new AndTerm(requireTerm, excludeTerm));
-      }
-
-      if (andNegatedTerms.isEmpty()) {
-        return of(requireTerm);
-      }
-
-      return of(excludeTerm);
-    }
-
-    if (andNegatedTerms.isEmpty()) {
-      return of(new OrTerm(includeTerm, requireTerm));
-    }
-
-    if (andTerms.isEmpty()) {
-      return of(new OrTerm(includeTerm, excludeTerm));
-    }
-
-    return of(new OrTerm(includeTerm, new AndTerm(excludeTerm, requireTerm)));
-  }
-
-  private Date convertLocalDateTimeToDate(LocalDateTime date) {
-    return Date.from(date.atZone(systemDefault()).toInstant());
   }
 
-  private FlagTerm getFlagTerm(Flags.Flag flag, boolean setValue) {
-    //if no policy defined, then default to INCLUDE
-    return new FlagTerm(new Flags(flag), setValue);
+  private Date toDate(LocalDateTime date, long marginMillis) {
+    return new Date(Date.from(date.atZone(systemDefault()).toInstant()).getTime() + marginMillis);
   }
 
   public java.util.Optional<SearchTerm> getRemoteSearchTerm() {
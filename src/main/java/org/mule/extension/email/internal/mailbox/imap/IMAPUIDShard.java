@@ -0,0 +1,66 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static java.lang.String.format;
+
+/**
+ * A partition of the UIDs of a folder, used to split the emails of a single mailbox between the nodes of a cluster. The
+ * partition {@code index} of {@code count} owns the emails whose UID modulo {@code count} is {@code index}, so each email is
+ * owned by exactly one partition.
+ *
+ * @since 2.0
+ */
+final class IMAPUIDShard {
+
+  private final int count;
+  private final int index;
+
+  /**
+   * @param count the amount of partitions, must be greater than 0.
+   * @param index the index of this partition, between 0 and {@code count - 1}.
+   * @throws IllegalArgumentException if the {@code count} or the {@code index} are out of range.
+   */
+  IMAPUIDShard(int count, int index) {
+    if (count < 1) {
+      throw new IllegalArgumentException(format("Shard count must be greater than 0 but was [%d]", count));
+    }
+    if (index < 0 || index >= count) {
+      throw new IllegalArgumentException(format("Shard index must be between 0 and %d but was [%d]", count - 1, index));
+    }
+    this.count = count;
+    this.index = index;
+  }
+
+  /**
+   * @return whether the UIDs are split between more than one partition.
+   */
+  boolean isPartitioned() {
+    return count > 1;
+  }
+
+  /**
+   * @param uid the UID of an email.
+   * @return whether the email of the given {@code uid} belongs to this partition.
+   */
+  boolean owns(long uid) {
+    return uid >= 0 && uid % count == index;
+  }
+
+  /**
+   * @param key a key of the polling state of the source.
+   * @return the given {@code key}, qualified with this partition when the UIDs are split.
+   */
+  String qualify(String key) {
+    return isPartitioned() ? key + "#" + index + "/" + count : key;
+  }
+
+  @Override
+  public String toString() {
+    return index + "/" + count;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link PollMetricsSink} that accumulates the metrics of each listener in a {@link MailboxListenerMetricsMBean} registered in
+ * the platform MBean server, under the {@code org.mule.extension.email:type=MailboxListener,app=<application>,name=<listener>}
+ * name. The application is part of the name so listeners of different applications with the same flow name don't collide.
+ *
+ * @since 2.0
+ */
+public class JmxPollMetricsSink implements PollMetricsSink {
+
+  private static final Logger LOGGER = getLogger(JmxPollMetricsSink.class);
+  private static final String DOMAIN = "org.mule.extension.email";
+
+  private final MBeanServer mBeanServer = getPlatformMBeanServer();
+  private final String application;
+  private final Map<String, MailboxListenerMetrics> listeners = new ConcurrentHashMap<>();
+
+  /**
+   * @param application the name of the application of the listeners whose metrics are registered.
+   */
+  public JmxPollMetricsSink(String application) {
+    this.application = application;
+  }
+
+  @Override
+  public void publish(PollMetrics metrics) {
+    listeners.computeIfAbsent(metrics.getListener(), this::register).add(metrics);
+  }
+
+  @Override
+  public void dispose(String listener) {
+    if (listeners.remove(listener) != null) {
+      try {
+        mBeanServer.unregisterMBean(getObjectName(listener));
+      } catch (JMException e) {
+        LOGGER.debug("Error unregistering the metrics MBean of listener " + listener, e);
+      }
+    }
+  }
+
+  private MailboxListenerMetrics register(String listener) {
+    MailboxListenerMetrics metrics = new MailboxListenerMetrics();
+    try {
+      ObjectName name = getObjectName(listener);
+      if (mBeanServer.isRegistered(name)) {
+        mBeanServer.unregisterMBean(name);
+      }
+      mBeanServer.registerMBean(metrics, name);
+    } catch (JMException e) {
+      LOGGER.warn("Error registering the metrics MBean of listener {}: {}", listener, e.getMessage());
+    }
+    return metrics;
+  }
+
+  ObjectName getObjectName(String listener) throws JMException {
+    return new ObjectName(DOMAIN + ":type=MailboxListener,app=" + ObjectName.quote(application) + ",name="
+        + ObjectName.quote(listener));
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link PollMetricsSink} that logs at DEBUG level a single line summary of each poll, in {@code key=value} format.
+ *
+ * @since 2.0
+ */
+public class LoggingPollMetricsSink implements PollMetricsSink {
+
+  private static final Logger LOGGER = getLogger(LoggingPollMetricsSink.class);
+
+  @Override
+  public void publish(PollMetrics metrics) {
+    if (LOGGER.isDebugEnabled()) {
+      LOGGER.debug("Email listener poll: {}", metrics);
+    }
+  }
+}
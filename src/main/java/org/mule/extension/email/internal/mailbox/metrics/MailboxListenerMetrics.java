@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+/**
+ * Accumulates the {@link PollMetrics} of a mailbox listener, exposed through JMX.
+ *
+ * @since 2.0
+ */
+public class MailboxListenerMetrics implements MailboxListenerMetricsMBean {
+
+  private long polls;
+  private long skippedPolls;
+  private long failedPolls;
+  private String lastSkipReason;
+  private long messagesScanned;
+  private long predicateMatches;
+  private long dispatched;
+  private long watermarkRejections;
+  private long bytesFetched;
+  private long lastPollDurationMillis;
+  private long lastFolderOpenMillis;
+  private long dispatchMillis;
+  private long maxDispatchMillis;
+
+  synchronized void add(PollMetrics metrics) {
+    if (metrics.isSkipped()) {
+      skippedPolls++;
+      lastSkipReason = metrics.getSkipReason();
+      return;
+    }
+    polls++;
+    if (metrics.isFailed()) {
+      failedPolls++;
+    }
+    messagesScanned += metrics.getMessagesScanned();
+    predicateMatches += metrics.getPredicateMatches();
+    dispatched += metrics.getDispatched();
+    watermarkRejections += metrics.getWatermarkRejections();
+    bytesFetched += metrics.getBytesFetched();
+    lastPollDurationMillis = metrics.getDurationMillis();
+    lastFolderOpenMillis = metrics.getFolderOpenMillis();
+    dispatchMillis += metrics.getDispatchMillis();
+    maxDispatchMillis = Math.max(maxDispatchMillis, metrics.getMaxDispatchMillis());
+  }
+
+  @Override
+  public synchronized long getPolls() {
+    return polls;
+  }
+
+  @Override
+  public synchronized long getSkippedPolls() {
+    return skippedPolls;
+  }
+
+  @Override
+  public synchronized long getFailedPolls() {
+    return failedPolls;
+  }
+
+  @Override
+  public synchronized String getLastSkipReason() {
+    return lastSkipReason;
+  }
+
+  @Override
+  public synchronized long getMessagesScanned() {
+    return messagesScanned;
+  }
+
+  @Override
+  public synchronized long getPredicateMatches() {
+    return predicateMatches;
+  }
+
+  @Override
+  public synchronized long getDispatched() {
+    return dispatched;
+  }
+
+  @Override
+  public synchronized long getWatermarkRejections() {
+    return watermarkRejections;
+  }
+
+  @Override
+  public synchronized long getBytesFetched() {
+    return bytesFetched;
+  }
+
+  @Override
+  public synchronized long getLastPollDurationMillis() {
+    return lastPollDurationMillis;
+  }
+
+  @Override
+  public synchronized long getLastFolderOpenMillis() {
+    return lastFolderOpenMillis;
+  }
+
+  @Override
+  public synchronized double getAverageDispatchMillis() {
+    return dispatched == 0 ? 0 : (double) dispatchMillis / dispatched;
+  }
+
+  @Override
+  public synchronized long getMaxDispatchMillis() {
+    return maxDispatchMillis;
+  }
+
+  @Override
+  public synchronized void reset() {
+    polls = 0;
+    skippedPolls = 0;
+    failedPolls = 0;
+    lastSkipReason = null;
+    messagesScanned = 0;
+    predicateMatches = 0;
+    dispatched = 0;
+    watermarkRejections = 0;
+    bytesFetched = 0;
+    lastPollDurationMillis = 0;
+    lastFolderOpenMillis = 0;
+    dispatchMillis = 0;
+    maxDispatchMillis = 0;
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+/**
+ * JMX management interface with the accumulated poll metrics of a mailbox listener.
+ *
+ * @since 2.0
+ */
+public interface MailboxListenerMetricsMBean {
+
+  long getPolls();
+
+  long getSkippedPolls();
+
+  long getFailedPolls();
+
+  String getLastSkipReason();
+
+  long getMessagesScanned();
+
+  long getPredicateMatches();
+
+  long getDispatched();
+
+  long getWatermarkRejections();
+
+  long getBytesFetched();
+
+  long getLastPollDurationMillis();
+
+  long getLastFolderOpenMillis();
+
+  double getAverageDispatchMillis();
+
+  long getMaxDispatchMillis();
+
+  /**
+   * Resets all the accumulated metrics.
+   */
+  void reset();
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The metrics of a single poll of a mailbox listener.
+ * <p>
+ * Except for the fetched bytes, which may be updated by the threads that fetch the content of the emails, all the metrics are
+ * updated by the thread that runs the poll.
+ *
+ * @since 2.0
+ */
+public final class PollMetrics {
+
+  private final String listener;
+  private final long startTimestamp = System.currentTimeMillis();
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong bytesFetched = new AtomicLong(0);
+  private String skipReason;
+  private boolean failed;
+  private int foldersPolled;
+  private long folderOpenNanos;
+  private int messagesScanned;
+  private int predicateMatches;
+  private int dispatched;
+  private int watermarkRejections;
+  private long dispatchNanos;
+  private long maxDispatchNanos;
+  private long durationNanos = -1;
+
+  public PollMetrics(String listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Records that the poll was skipped.
+   *
+   * @param reason why the poll was skipped.
+   */
+  public void skipped(String reason) {
+    this.skipReason = reason;
+  }
+
+  /**
+   * Records that the poll failed.
+   */
+  public void failed() {
+    this.failed = true;
+  }
+
+  /**
+   * Records that a folder was opened.
+   *
+   * @param nanos the time it took to open the folder.
+   */
+  public void folderOpened(long nanos) {
+    foldersPolled++;
+    folderOpenNanos += nanos;
+  }
+
+  public void messagesScanned(int count) {
+    messagesScanned += count;
+  }
+
+  public void predicateMatched() {
+    predicateMatches++;
+  }
+
+  public void watermarkRejected() {
+    watermarkRejections++;
+  }
+
+  /**
+   * Records the size of the content fetched for an email. Negative sizes are ignored.
+   */
+  public void contentFetched(long bytes) {
+    if (bytes > 0) {
+      bytesFetched.addAndGet(bytes);
+    }
+  }
+
+  /**
+   * Records that an email was handed to the flow.
+   *
+   * @param nanos the time it took to fetch its content and hand it to the flow.
+   */
+  public void dispatched(long nanos) {
+    dispatched++;
+    dispatchNanos += nanos;
+    maxDispatchNanos = Math.max(maxDispatchNanos, nanos);
+  }
+
+  /**
+   * Marks the end of the poll.
+   */
+  public void completed() {
+    durationNanos = System.nanoTime() - startNanos;
+  }
+
+  public String getListener() {
+    return listener;
+  }
+
+  public long getStartTimestamp() {
+    return startTimestamp;
+  }
+
+  public boolean isSkipped() {
+    return skipReason != null;
+  }
+
+  public String getSkipReason() {
+    return skipReason;
+  }
+
+  public boolean isFailed() {
+    return failed;
+  }
+
+  public int getFoldersPolled() {
+    return foldersPolled;
+  }
+
+  public long getFolderOpenMillis() {
+    return NANOSECONDS.toMillis(folderOpenNanos);
+  }
+
+  public int getMessagesScanned() {
+    return messagesScanned;
+  }
+
+  public int getPredicateMatches() {
+    return predicateMatches;
+  }
+
+  public int getDispatched() {
+    return dispatched;
+  }
+
+  public int getWatermarkRejections() {
+    return watermarkRejections;
+  }
+
+  public long getBytesFetched() {
+    return bytesFetched.get();
+  }
+
+  public long getDispatchMillis() {
+    return NANOSECONDS.toMillis(dispatchNanos);
+  }
+
+  public long getMaxDispatchMillis() {
+    return NANOSECONDS.toMillis(maxDispatchNanos);
+  }
+
+  public long getDurationMillis() {
+    return NANOSECONDS.toMillis(durationNanos >= 0 ? durationNanos : System.nanoTime() - startNanos);
+  }
+
+  @Override
+  public String toString() {
+    if (isSkipped()) {
+      return "listener=" + listener + " skipped=true reason=\"" + skipReason + "\"";
+    }
+    return "listener=" + listener
+        + " skipped=false"
+        + " failed=" + failed
+        + " durationMs=" + getDurationMillis()
+        + " folders=" + foldersPolled
+        + " folderOpenMs=" + getFolderOpenMillis()
+        + " scanned=" + messagesScanned
+        + " matched=" + predicateMatches
+        + " dispatched=" + dispatched
+        + " watermarkRejected=" + watermarkRejections
+        + " bytesFetched=" + getBytesFetched()
+        + " dispatchMs=" + getDispatchMillis()
+        + " maxDispatchMs=" + getMaxDispatchMillis();
+  }
+}
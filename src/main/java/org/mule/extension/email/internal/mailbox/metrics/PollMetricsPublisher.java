@@ -0,0 +1,62 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static java.util.Arrays.asList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+
+/**
+ * Publishes the {@link PollMetrics} of a mailbox listener to the built-in logging and JMX sinks.
+ *
+ * @since 2.0
+ */
+public final class PollMetricsPublisher {
+
+  private static final Logger LOGGER = getLogger(PollMetricsPublisher.class);
+
+  private final String listener;
+  private final List<PollMetricsSink> sinks;
+
+  /**
+   * @param application the name of the application of the listener, which scopes its JMX MBean.
+   * @param listener    the name of the listener whose metrics are published.
+   */
+  public PollMetricsPublisher(String application, String listener) {
+    this.listener = listener;
+    this.sinks = asList(new LoggingPollMetricsSink(), new JmxPollMetricsSink(application));
+  }
+
+  /**
+   * Publishes the given {@code metrics} to all the sinks. Errors of a sink are logged and do not affect the others.
+   */
+  public void publish(PollMetrics metrics) {
+    for (PollMetricsSink sink : sinks) {
+      try {
+        sink.publish(metrics);
+      } catch (RuntimeException e) {
+        LOGGER.debug("Error publishing poll metrics to " + sink.getClass().getName(), e);
+      }
+    }
+  }
+
+  /**
+   * Disposes all the sinks for the listener of this publisher.
+   */
+  public void dispose() {
+    for (PollMetricsSink sink : sinks) {
+      try {
+        sink.dispose(listener);
+      } catch (RuntimeException e) {
+        LOGGER.debug("Error disposing poll metrics sink " + sink.getClass().getName(), e);
+      }
+    }
+  }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+/**
+ * Receives the {@link PollMetrics} of the polls of a mailbox listener.
+ *
+ * @since 2.0
+ */
+public interface PollMetricsSink {
+
+  /**
+   * Publishes the metrics of a finished or skipped poll.
+   *
+   * @param metrics the metrics of the poll.
+   */
+  void publish(PollMetrics metrics);
+
+  /**
+   * Releases the resources of this sink once the listener stops.
+   *
+   * @param listener the name of the stopped listener.
+   */
+  default void dispose(String listener) {
+    // Do nothing.
+  }
+}
@@ -23,8 +23,10 @@ import org.mule.runtime.extension.api.annotation.param.display.Summary;
 
 import com.sun.mail.pop3.POP3Folder;
 
+import javax.mail.FetchProfile;
 import javax.mail.Folder;
 import javax.mail.Message;
+import javax.mail.UIDFolder;
 
 /**
  * Configuration for operations that are performed through the POP3 (Post Office Protocol 3) protocol.
@@ -59,7 +61,8 @@ public class POP3Configuration implements MailboxAccessConfiguration {
   /**
    * {@inheritDoc}
    * <p>
-   * The pop3 protocol always read the content when retrieves an email.
+   * The pop3 protocol always read the content when retrieves an email. Only the content of the emails that meet the matcher is
+   * retrieved, since the matcher is evaluated on the headers returned by a {@code TOP n 0} command.
    */
   @Override
   public boolean isEagerlyFetchContent() {
@@ -72,4 +75,31 @@ public class POP3Configuration implements MailboxAccessConfiguration {
   public <T extends BaseEmailAttributes> T parseAttributesFromMessage(Message message, Folder folder) {
     return (T) new POP3EmailAttributes(message, (POP3Folder) folder);
   }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The UIDs and sizes are fetched in bulk, with a single UIDL and a single LIST command. The headers of a POP3 email can only
+   * be retrieved one email at a time, so they are still fetched lazily.
+   */
+  @Override
+  public FetchProfile getAttributesFetchProfile() {
+    FetchProfile fetchProfile = new FetchProfile();
+    fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+    fetchProfile.add(FetchProfile.Item.SIZE);
+    return fetchProfile;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Besides the UIDs and sizes, the headers of each email are retrieved with a {@code TOP n 0} command, which does not download
+   * the body of the email. The body is only retrieved with a {@code RETR} command once the content of the email is read.
+   */
+  @Override
+  public FetchProfile getEnvelopeFetchProfile() {
+    FetchProfile fetchProfile = getAttributesFetchProfile();
+    fetchProfile.add(FetchProfile.Item.ENVELOPE);
+    return fetchProfile;
+  }
 }
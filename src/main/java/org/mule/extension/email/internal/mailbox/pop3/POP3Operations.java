@@ -9,9 +9,11 @@ package org.mule.extension.email.internal.mailbox.pop3;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.CONFIG_OVERRIDES_PARAM_GROUP;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_PAGE_SIZE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_PAGINATION_OFFSET;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.DEFAULT_READ_AHEAD_PAGES;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.INBOX_FOLDER;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.PAGE_SIZE_ERROR_MESSAGE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.PAGINATION_OFFSET_ERROR_MESSAGE;
+import static org.mule.extension.email.internal.util.EmailConnectorConstants.READ_AHEAD_PAGES_ERROR_MESSAGE;
 import static org.mule.extension.email.internal.util.EmailConnectorConstants.UNLIMITED;
 import static org.mule.runtime.api.util.Preconditions.checkArgument;
 import static java.lang.String.format;
@@ -19,6 +21,7 @@ import static javax.mail.Flags.Flag.DELETED;
 import static javax.mail.Folder.READ_ONLY;
 
 import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
 import org.mule.extension.email.api.attributes.POP3EmailAttributes;
 import org.mule.extension.email.api.exception.EmailAccessingFolderException;
 import org.mule.extension.email.api.exception.EmailCountMessagesException;
@@ -32,6 +35,7 @@ import org.mule.extension.email.internal.mailbox.MailboxAccessConfigOverrides;
 import org.mule.extension.email.internal.mailbox.MailboxAccessConfiguration;
 import org.mule.extension.email.internal.mailbox.MailboxConnection;
 import org.mule.extension.email.internal.resolver.POP3ArrayStoredEmailContentTypeResolver;
+import org.mule.runtime.api.scheduler.SchedulerService;
 import org.mule.runtime.extension.api.annotation.error.Throws;
 import org.mule.runtime.extension.api.annotation.metadata.OutputResolver;
 import org.mule.runtime.extension.api.annotation.param.Config;
@@ -44,6 +48,7 @@ import org.mule.runtime.extension.api.runtime.operation.Result;
 import org.mule.runtime.extension.api.runtime.streaming.PagingProvider;
 import org.mule.runtime.extension.api.runtime.streaming.StreamingHelper;
 
+import javax.inject.Inject;
 import javax.mail.MessagingException;
 
 import com.sun.mail.pop3.POP3Folder;
@@ -57,6 +62,9 @@ public class POP3Operations {
 
   private final SetFlagCommand setFlagCommand = new SetFlagCommand();
 
+  @Inject
+  private SchedulerService schedulerService;
+
   /**
    * List all the emails (with pagination) in the configured pop3 mailBoxFolder that match with the specified {@code pop3Matcher}
    * criteria.
@@ -73,6 +81,9 @@ public class POP3Operations {
    * @param limit               Maximum amount of emails retrieved by the operation. Take into account that this limit only applies to the emails effectively
    *                            retrieved by the operation (the ones which matched the {@link IMAPEmailPredicateBuilder} criteria) and doesn't
    *                            imply any restriction over the amount of emails being retrieved from the mailbox server.
+   * @param readAheadPages      Maximum amount of pages fetched in the background while the flow processes the current one. Each
+   *                            fetched page is kept in memory until the flow requests it. Defaults to 0, which fetches each page
+   *                            when requested.
    * @return an {@link PagingProvider} which provides {@link Result}s composed by the email's body and its corresponding {@link POP3EmailAttributes}.
    */
   @Summary("Lists the emails in the given POP3 Mailbox Folder")
@@ -91,17 +102,22 @@ public class POP3Operations {
                                                                                                          defaultValue = DEFAULT_PAGINATION_OFFSET) int paginationOffset,
                                                                                                      @Optional(
                                                                                                          defaultValue = UNLIMITED) int limit,
+                                                                                                     @Optional(
+                                                                                                         defaultValue = DEFAULT_READ_AHEAD_PAGES) int readAheadPages,
                                                                                                      StreamingHelper streamingHelper,
                                                                                                      @ParameterGroup(
                                                                                                          name = CONFIG_OVERRIDES_PARAM_GROUP) MailboxAccessConfigOverrides overrides) {
     checkArgument(pageSize > 0, format(PAGE_SIZE_ERROR_MESSAGE, pageSize));
     checkArgument(paginationOffset >= 0, format(PAGINATION_OFFSET_ERROR_MESSAGE, pageSize));
+    checkArgument(readAheadPages >= 0, format(READ_AHEAD_PAGES_ERROR_MESSAGE, readAheadPages));
     return new PagingProviderEmailDelegate<>(config, mailboxFolder, pop3Matcher, pageSize, paginationOffset, limit,
                                              deleteAfterRetrieve,
-                                             (connection, attributes) -> setFlagCommand.setByNumber(connection, mailboxFolder,
-                                                                                                    DELETED,
-                                                                                                    attributes.getNumber()),
-                                             streamingHelper, overrides);
+                                             (connection, emails) -> setFlagCommand
+                                                 .setByNumbers(connection, mailboxFolder, DELETED,
+                                                               emails.stream().mapToInt(BaseEmailAttributes::getNumber)
+                                                                   .toArray()),
+                                             streamingHelper, overrides)
+        .readAhead(readAheadPages, readAheadPages > 0 ? schedulerService.ioScheduler() : null);
   }
 
   /**
@@ -6,20 +6,53 @@
  */
 package org.mule.extension.email.internal.mailbox.pop3;
 
+import static java.util.Collections.rotate;
 import static java.util.Optional.ofNullable;
+import static org.mule.runtime.extension.api.annotation.param.display.Placement.ADVANCED_TAB;
+import static org.slf4j.LoggerFactory.getLogger;
 
+import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
 import org.mule.extension.email.api.predicate.BaseEmailPredicateBuilder;
 import org.mule.extension.email.api.predicate.POP3EmailPredicateBuilder;
 import org.mule.extension.email.internal.mailbox.BaseMailboxPollingSource;
 import org.mule.extension.email.internal.resolver.StoredEmailContentTypeResolver;
+import org.mule.runtime.api.connection.ConnectionException;
 import org.mule.runtime.extension.api.annotation.Alias;
+import org.mule.runtime.extension.api.annotation.execution.OnTerminate;
 import org.mule.runtime.extension.api.annotation.metadata.MetadataScope;
 import org.mule.runtime.extension.api.annotation.param.Optional;
 import org.mule.runtime.extension.api.annotation.param.Parameter;
 import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
+import org.mule.runtime.extension.api.annotation.param.display.Placement;
+import org.mule.runtime.extension.api.annotation.param.display.Summary;
+import org.mule.runtime.extension.api.annotation.source.OnBackPressure;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.mule.runtime.extension.api.runtime.source.BackPressureContext;
+import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
+import org.mule.runtime.extension.api.runtime.source.SourceResult;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import javax.mail.FetchProfile;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.UIDFolder;
+
+import com.sun.mail.pop3.POP3Folder;
+import org.slf4j.Logger;
 
 /**
  * Retrieves all the emails from an POP3 mailbox folder.
+ * <p>
+ * The UIDLs of the emails already dispatched by this source are persisted, one entry each, so emails left on the server are not
+ * dispatched again on the following polls or after a restart. Emails discarded by the matcher are evaluated again on every
+ * poll.
  *
  * @since 1.1
  */
@@ -28,6 +61,10 @@ import org.mule.runtime.extension.api.annotation.param.display.DisplayName;
 @MetadataScope(outputResolver = StoredEmailContentTypeResolver.class)
 public class POP3PollingSource extends BaseMailboxPollingSource {
 
+  private static final Logger LOGGER = getLogger(POP3PollingSource.class);
+  private static final String PROCESSED_UID_KEY_PREFIX = "uidl:";
+  private static final String RESUME_UID_KEY_PREFIX = "resume:";
+
   /**
    * A matcher to filter emails retrieved by this polling source.
    */
@@ -35,6 +72,35 @@ public class POP3PollingSource extends BaseMailboxPollingSource {
   @Optional
   private POP3EmailPredicateBuilder pop3Matcher;
 
+  /**
+   * Whether the body and attachments of the emails are retrieved the first time the flow accesses them, instead of before
+   * dispatching them. The matcher is evaluated on the headers of the emails, so emails that are discarded or whose content is
+   * never accessed are not downloaded. POP3 servers lock the mailbox while a session is open, so the content is read from the
+   * session of the poll, which is kept open until the flow finishes processing the dispatched emails, and it can not be read
+   * once the flow is done with the email. This is ignored when emails are deleted after being retrieved. Defaults to false.
+   */
+  @Parameter
+  @Optional(defaultValue = "false")
+  @Placement(tab = ADVANCED_TAB)
+  @Summary("Whether the content of the emails is fetched the first time the flow accesses it")
+  private boolean fetchContentLazily;
+
+  /**
+   * The UIDLs of the emails already dispatched by this source that are still on the server.
+   */
+  private Set<String> processedUids;
+
+  /**
+   * The UIDL of the last email scanned by a poll that stopped before scanning all the emails, or {@code null} if the next poll
+   * starts from the first email of the mailbox.
+   */
+  private String resumeAfterUid;
+
+  /**
+   * Whether the current poll stopped before scanning all the emails.
+   */
+  private boolean pollTruncated;
+
   /**
    * {@inheritDoc}
    */
@@ -54,4 +120,194 @@ public class POP3PollingSource extends BaseMailboxPollingSource {
   protected boolean isWatermarkEnabled() {
     return false;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected boolean isContentFetchedLazily() {
+    return fetchContentLazily;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * When the content is fetched lazily, the session of the poll is kept open until the emails are processed.
+   */
+  @Override
+  protected boolean isFolderLeasedUntilProcessed() {
+    return fetchContentLazily;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * POP3 servers lock the mailbox while a session is open (RFC 1939), so a second session can not be opened to read an email.
+   *
+   * @return false.
+   */
+  @Override
+  protected boolean isFolderReopenedToFetchContent() {
+    return false;
+  }
+
+  @Override
+  public void onRejectedItem(Result<StoredEmailContent, BaseEmailAttributes> result,
+                             SourceCallbackContext sourceCallbackContext) {
+    releaseFolder(sourceCallbackContext);
+    super.onRejectedItem(result, sourceCallbackContext);
+  }
+
+  @OnBackPressure
+  public void onBackPressure(BackPressureContext backPressureContext) {
+    releaseFolder(backPressureContext.getSourceCallbackContext());
+  }
+
+  @OnTerminate
+  public void onTerminate(SourceResult sourceResult) {
+    releaseFolder(sourceResult.getSourceCallbackContext());
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Message numbers are only stable within a POP3 session, so the UIDL of the email found at the number of the given
+   * {@code attributes} is checked and, if it does not match, the email is looked up by its UIDL.
+   */
+  @Override
+  protected Message getMessage(Folder folder, BaseEmailAttributes attributes) throws MessagingException {
+    POP3Folder pop3Folder = (POP3Folder) folder;
+    String uid = attributes.getId();
+    if (uid == null) {
+      return super.getMessage(folder, attributes);
+    }
+    if (attributes.getNumber() <= pop3Folder.getMessageCount()) {
+      Message message = pop3Folder.getMessage(attributes.getNumber());
+      if (uid.equals(pop3Folder.getUID(message))) {
+        return message;
+      }
+    }
+    Message[] messages = pop3Folder.getMessages();
+    FetchProfile fetchProfile = new FetchProfile();
+    fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+    pop3Folder.fetch(messages, fetchProfile);
+    for (Message message : messages) {
+      if (uid.equals(pop3Folder.getUID(message))) {
+        return message;
+      }
+    }
+    throw new MessagingException("Email [" + uid + "] is no longer in the mailbox");
+  }
+
+  @Override
+  protected void doStart() throws ConnectionException {
+    super.doStart();
+    String keyPrefix = getProcessedUidKeyPrefix();
+    processedUids = new HashSet<>();
+    retrievePollStateKeys(keyPrefix).forEach(key -> processedUids.add(key.substring(keyPrefix.length())));
+    resumeAfterUid = this.<String>retrievePollState(getResumeUidKey()).orElse(null);
+    pollTruncated = false;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Retrieves the UIDLs of all the emails with a single UIDL command and only returns the emails that were not processed yet.
+   * UIDLs of emails that are no longer on the server are forgotten. If the previous poll stopped before scanning all the emails,
+   * the emails that follow the last scanned one are returned first.
+   */
+  @Override
+  protected Message[] getMessages(Folder openFolder) {
+    pollTruncated = false;
+    Message[] messages = super.getMessages(openFolder);
+    POP3Folder pop3Folder = (POP3Folder) openFolder;
+    try {
+      FetchProfile fetchProfile = new FetchProfile();
+      fetchProfile.add(UIDFolder.FetchProfileItem.UID);
+      pop3Folder.fetch(messages, fetchProfile);
+
+      Set<String> serverUids = new HashSet<>();
+      List<Message> newMessages = new ArrayList<>();
+      int resumeIndex = -1;
+      for (Message message : messages) {
+        String uid = pop3Folder.getUID(message);
+        if (uid == null) {
+          // The server does not support UIDL.
+          newMessages.add(message);
+        } else {
+          serverUids.add(uid);
+          if (!processedUids.contains(uid)) {
+            newMessages.add(message);
+          }
+          if (uid.equals(resumeAfterUid)) {
+            resumeIndex = newMessages.size();
+          }
+        }
+      }
+      if (resumeIndex > 0) {
+        // The emails scanned before the last poll stopped are scanned last.
+        rotate(newMessages, -resumeIndex);
+      }
+
+      for (Iterator<String> processed = processedUids.iterator(); processed.hasNext();) {
+        String uid = processed.next();
+        if (!serverUids.contains(uid)) {
+          processed.remove();
+          removePollState(getProcessedUidKeyPrefix() + uid);
+        }
+      }
+      LOGGER.debug("{} new emails out of {} in the mailbox", newMessages.size(), messages.length);
+      return newMessages.toArray(new Message[0]);
+    } catch (MessagingException e) {
+      LOGGER.debug("Error retrieving the UIDLs, all the emails of the mailbox will be processed", e);
+      return messages;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * POP3 only remembers the dispatched emails, so the UIDL of the last scanned email is stored to resume the next poll after it.
+   */
+  @Override
+  protected void pollTruncated(String folderName, BaseEmailAttributes lastScanned) {
+    if (lastScanned.getId() != null) {
+      pollTruncated = true;
+      resumeAfterUid = lastScanned.getId();
+      storePollState(getResumeUidKey(), resumeAfterUid);
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Once a poll scans all the emails, the next one starts from the first email of the mailbox.
+   */
+  @Override
+  protected void pollCompleted(String folderName) {
+    if (!pollTruncated && resumeAfterUid != null) {
+      resumeAfterUid = null;
+      removePollState(getResumeUidKey());
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * Remembers the UIDL of the dispatched email in its own entry of the poll state.
+   */
+  @Override
+  protected void emailAccepted(BaseEmailAttributes attributes) {
+    if (attributes.getId() != null && processedUids.add(attributes.getId())) {
+      storePollState(getProcessedUidKeyPrefix() + attributes.getId(), true);
+    }
+  }
+
+  private String getProcessedUidKeyPrefix() {
+    return PROCESSED_UID_KEY_PREFIX + getFolderName() + ":";
+  }
+
+  private String getResumeUidKey() {
+    return RESUME_UID_KEY_PREFIX + getFolderName();
+  }
 }
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.util;
+
+import static java.util.Comparator.comparingInt;
+
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Predicate} that evaluates the conjunction of a number of conditions over {@link BaseEmailAttributes}, from the
+ * cheapest to the most expensive one, and stops on the first condition that is not met.
+ *
+ * @since 2.0
+ */
+public final class CompiledEmailPredicate implements Predicate<BaseEmailAttributes> {
+
+  /**
+   * The relative cost of evaluating a condition. Conditions are evaluated in the order of this enum.
+   */
+  public enum Cost {
+    /**
+     * Comparisons of flags and other primitive values.
+     */
+    FLAGS,
+
+    /**
+     * Comparisons of dates and sizes.
+     */
+    COMPARISONS,
+
+    /**
+     * Substring searches that discard the values that can not match a regular expression.
+     */
+    LITERALS,
+
+    /**
+     * Regular expression evaluations.
+     */
+    REGEX
+  }
+
+  private final Predicate<BaseEmailAttributes>[] conditions;
+
+  private CompiledEmailPredicate(Predicate<BaseEmailAttributes>[] conditions) {
+    this.conditions = conditions;
+  }
+
+  @Override
+  public boolean test(BaseEmailAttributes attributes) {
+    for (Predicate<BaseEmailAttributes> condition : conditions) {
+      if (!condition.test(attributes)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return a new {@link Builder}.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * Collects the conditions of a {@link CompiledEmailPredicate}.
+   */
+  public static final class Builder {
+
+    private final List<Condition> conditions = new ArrayList<>();
+
+    private Builder() {}
+
+    /**
+     * @param cost      the relative cost of evaluating the {@code condition}.
+     * @param condition a condition that the emails must meet.
+     * @return this builder.
+     */
+    public Builder add(Cost cost, Predicate<BaseEmailAttributes> condition) {
+      conditions.add(new Condition(cost, condition));
+      return this;
+    }
+
+    /**
+     * @return a {@link CompiledEmailPredicate} that evaluates the added conditions by ascending cost, in the order in which
+     *         they were added within the same cost.
+     */
+    @SuppressWarnings("unchecked")
+    public CompiledEmailPredicate build() {
+      return new CompiledEmailPredicate(conditions.stream()
+          .sorted(comparingInt(condition -> condition.cost.ordinal()))
+          .map(condition -> condition.predicate)
+          .toArray(Predicate[]::new));
+    }
+  }
+
+  private static final class Condition {
+
+    private final Cost cost;
+    private final Predicate<BaseEmailAttributes> predicate;
+
+    private Condition(Cost cost, Predicate<BaseEmailAttributes> predicate) {
+      this.cost = cost;
+      this.predicate = predicate;
+    }
+  }
+}
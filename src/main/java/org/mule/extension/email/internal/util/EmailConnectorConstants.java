@@ -90,6 +90,14 @@ public final class EmailConnectorConstants {
    */
   public static final String DEFAULT_PAGINATION_OFFSET = "0";
 
+  /**
+   * Default amount of pages fetched ahead by the {@link PagingProviderEmailDelegate}
+   */
+  public static final String DEFAULT_READ_AHEAD_PAGES = "0";
+
+  public static final String READ_AHEAD_PAGES_ERROR_MESSAGE =
+      "Read ahead pages attribute must not be negative but '%d' was received";
+
   public static final String PAGE_SIZE_ERROR_MESSAGE = "Page size attribute must be greater than zero but '%d' was received";
 
   public static final String PAGINATION_OFFSET_ERROR_MESSAGE =
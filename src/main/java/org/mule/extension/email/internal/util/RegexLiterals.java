@@ -0,0 +1,174 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.util;
+
+import static java.lang.Math.min;
+
+/**
+ * Utilities to find the literal text that every string matched by a regular expression must contain, so the strings that can
+ * not match are discarded without evaluating the expression.
+ *
+ * @since 2.0
+ */
+public final class RegexLiterals {
+
+  private static final String REGEX_META_CHARACTERS = "\\.[]{}()<>*+-=!?^$|";
+
+  private RegexLiterals() {}
+
+  /**
+   * Extracts the longest text that every string matched by the given regular expression must contain.
+   * <p>
+   * Only the literal characters outside of groups and character classes are considered, and characters made optional by a
+   * quantifier are discarded. Expressions with alternatives, quoted sections or inline flags are not analyzed, since flags such
+   * as {@code (?i)} or {@code (?x)} change how the literal characters are matched.
+   *
+   * @param regex a regular expression, compiled without flags and matched with {@link java.util.regex.Matcher#find()}
+   *              semantics.
+   * @return the literal, or {@code null} if there is no literal that matching strings must contain.
+   */
+  public static String requiredLiteral(String regex) {
+    if (regex == null || regex.indexOf('|') >= 0 || regex.contains("\\Q") || regex.contains("(?")) {
+      return null;
+    }
+
+    String longest = "";
+    StringBuilder current = new StringBuilder();
+    int depth = 0;
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\' && i + 1 < regex.length()) {
+        char escaped = regex.charAt(i + 1);
+        if (depth == 0 && REGEX_META_CHARACTERS.indexOf(escaped) >= 0) {
+          current.append(escaped);
+          i += 2;
+        } else {
+          // Character classes such as \d or \s, escapes of characters by their code such as \x41, or escapes inside groups.
+          longest = longer(longest, current);
+          i = skipEscape(regex, i);
+        }
+        continue;
+      }
+      if (c == '[') {
+        longest = longer(longest, current);
+        i = skipCharacterClass(regex, i);
+        continue;
+      }
+      i++;
+      if (c == '(') {
+        longest = longer(longest, current);
+        depth++;
+      } else if (c == ')') {
+        depth = Math.max(0, depth - 1);
+      } else if (c == '?' || c == '*' || c == '{') {
+        // The previous character is optional.
+        if (current.length() > 0 && depth == 0) {
+          current.setLength(current.length() - 1);
+        }
+        longest = longer(longest, current);
+        if (c == '{') {
+          int end = regex.indexOf('}', i);
+          i = end < 0 ? regex.length() : end + 1;
+        }
+      } else if (c == '+' || c == '.' || c == '^' || c == '$') {
+        longest = longer(longest, current);
+      } else if (depth == 0) {
+        current.append(c);
+      }
+    }
+    longest = longer(longest, current);
+    return longest.trim().isEmpty() ? null : longest;
+  }
+
+  /**
+   * @return the longest of {@code longest} and the current literal, which is cleared.
+   */
+  private static String longer(String longest, StringBuilder current) {
+    String candidate = current.toString();
+    current.setLength(0);
+    return candidate.length() > longest.length() ? candidate : longest;
+  }
+
+  /**
+   * @return the index right after the escape sequence that starts at {@code start}, which is followed by a character that is not
+   *         a metacharacter. The sequence includes the code of escapes such as {@code \x41}, {@code \0101}, {@code \cA} or
+   *         hexadecimal unicode escapes, and the name or property of escapes such as {@code \k<name>} or {@code \p{Lu}}.
+   */
+  private static int skipEscape(String regex, int start) {
+    char escaped = regex.charAt(start + 1);
+    int i = start + 2;
+    switch (escaped) {
+      case 'x':
+        return i < regex.length() && regex.charAt(i) == '{' ? skipPast(regex, i, '}') : min(i + 2, regex.length());
+      case 'u':
+        return min(i + 4, regex.length());
+      case '0':
+        int end = min(i + 3, regex.length());
+        while (i < end && regex.charAt(i) >= '0' && regex.charAt(i) <= '7') {
+          i++;
+        }
+        return i;
+      case 'c':
+        return min(i + 1, regex.length());
+      case 'k':
+        return skipPast(regex, i, '>');
+      case 'p':
+      case 'P':
+      case 'N':
+        return i < regex.length() && regex.charAt(i) == '{' ? skipPast(regex, i, '}') : min(i + 1, regex.length());
+      default:
+        // Back references, such as \12, are followed by the digits of the group number.
+        if (escaped >= '1' && escaped <= '9') {
+          while (i < regex.length() && Character.isDigit(regex.charAt(i))) {
+            i++;
+          }
+        }
+        return i;
+    }
+  }
+
+  /**
+   * @return the index right after the first {@code delimiter} found from {@code start}, or the length of {@code regex} if there
+   *         is none.
+   */
+  private static int skipPast(String regex, int start, char delimiter) {
+    int end = regex.indexOf(delimiter, start);
+    return end < 0 ? regex.length() : end + 1;
+  }
+
+  /**
+   * @return the index right after the character class that starts at {@code start}.
+   */
+  private static int skipCharacterClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+    int nesting = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      i++;
+      if (c == '[') {
+        nesting++;
+      } else if (c == ']') {
+        if (nesting == 0) {
+          break;
+        }
+        nesting--;
+      }
+    }
+    return i;
+  }
+}
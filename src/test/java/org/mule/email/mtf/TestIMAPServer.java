@@ -28,6 +28,7 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import javax.mail.Flags;
 import javax.mail.Folder;
+import javax.mail.Message;
 import javax.mail.MessagingException;
 
 import com.icegreen.greenmail.store.FolderException;
@@ -199,6 +200,40 @@ public class TestIMAPServer extends AbstractTestServer {
     });
   }
 
+  public static void sendEmailToFolder(String folderName, String subject) throws MessagingException {
+    IMAPStore store = connect();
+    try {
+      Folder folder = store.getFolder(folderName);
+      if (!folder.exists()) {
+        folder.create(Folder.HOLDS_FOLDERS | Folder.HOLDS_MESSAGES);
+      }
+      folder.appendMessages(new Message[] {getMimeMessage(JUANI_EMAIL, ALE_EMAIL, EMAIL_CONTENT, TEXT_PLAIN, subject,
+                                                          ESTEBAN_EMAIL)});
+    } finally {
+      store.close();
+    }
+  }
+
+  public static void expungeAll() throws MessagingException {
+    IMAPStore store = connect();
+    try {
+      Folder inbox = store.getFolder("INBOX");
+      inbox.open(Folder.READ_WRITE);
+      if (inbox.getMessageCount() > 0) {
+        inbox.setFlags(1, inbox.getMessageCount(), new Flags(DELETED), true);
+      }
+      inbox.close(true);
+    } finally {
+      store.close();
+    }
+  }
+
+  private static IMAPStore connect() throws MessagingException {
+    IMAPStore store = server.getImap() != null ? server.getImap().createStore() : server.getImaps().createStore();
+    store.connect(JUANI_EMAIL, "password");
+    return store;
+  }
+
   public static void createFolder(String folderName, String protocol) throws MessagingException {
     final IMAPStore store;
     if (protocol.equals("imaps")) {
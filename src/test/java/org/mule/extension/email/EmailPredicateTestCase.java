@@ -7,6 +7,7 @@
 package org.mule.extension.email;
 
 import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
@@ -124,6 +125,15 @@ public class EmailPredicateTestCase {
     assertReject();
   }
 
+  @Test
+  public void envelopePredicateSkipsHeaders() {
+    builder.setSubjectRegex("Email.*");
+    builder.setHeaderRegexes(singletonMap("X-Tenant-Id", "acme"));
+    assertThat(builder.requiresHeaders(), is(true));
+    assertThat(builder.buildEnvelopePredicate().test(attributes), is(true));
+    assertReject();
+  }
+
   private void assertMatch() {
     assertThat(builder.build().test(attributes), is(true));
   }
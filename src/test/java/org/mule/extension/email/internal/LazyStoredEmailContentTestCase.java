@@ -0,0 +1,41 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal;
+
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.mule.runtime.api.metadata.TypedValue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class LazyStoredEmailContentTestCase {
+
+  private final AtomicInteger loads = new AtomicInteger(0);
+
+  private final LazyStoredEmailContent email = new LazyStoredEmailContent(() -> {
+    loads.incrementAndGet();
+    return new DefaultStoredEmailContent(new TypedValue<>("this is the body", null), emptyMap());
+  });
+
+  @Test
+  public void notLoadedUntilAccessed() {
+    assertThat(email.isLoaded(), is(false));
+    assertThat(loads.get(), is(0));
+  }
+
+  @Test
+  public void loadedOnce() {
+    assertThat(email.getBody().getValue(), is("this is the body"));
+    assertThat(email.getAttachments().isEmpty(), is(true));
+    assertThat(email.isLoaded(), is(true));
+    assertThat(loads.get(), is(1));
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.commands;
+
+import static javax.mail.Folder.READ_WRITE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+
+import javax.mail.Message;
+
+import com.sun.mail.imap.IMAPFolder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpungeCommandTestCase {
+
+  private static final String FOLDER = "INBOX";
+
+  private final ExpungeCommand expungeCommand = new ExpungeCommand();
+  private MailboxConnection connection;
+  private IMAPFolder folder;
+  private Message[] emails;
+
+  @Before
+  public void setUp() {
+    folder = mock(IMAPFolder.class);
+    connection = mock(MailboxConnection.class);
+    when(connection.getFolder(FOLDER, READ_WRITE)).thenReturn(folder);
+    emails = new Message[] {mock(Message.class), mock(Message.class)};
+  }
+
+  @Test
+  public void emailsAreExpungedWithASingleCommand() throws Exception {
+    when(connection.hasCapability("UIDPLUS")).thenReturn(true);
+
+    assertThat(expungeCommand.expungeEmails(connection, FOLDER, emails), is(true));
+    verify(folder).expunge(emails);
+    verify(folder, never()).expunge();
+  }
+
+  @Test
+  public void emailsAreLeftForTheFolderCloseWithoutUidPlus() throws Exception {
+    when(connection.hasCapability("UIDPLUS")).thenReturn(false);
+
+    assertThat(expungeCommand.expungeEmails(connection, FOLDER, emails), is(false));
+    verify(folder, never()).expunge(any(Message[].class));
+    verify(folder, never()).expunge();
+  }
+}
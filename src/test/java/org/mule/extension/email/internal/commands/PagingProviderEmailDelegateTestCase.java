@@ -0,0 +1,193 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.commands;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.internal.mailbox.MailboxAccessConfigOverrides;
+import org.mule.extension.email.internal.mailbox.MailboxAccessConfiguration;
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+import org.mule.runtime.api.scheduler.Scheduler;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+
+import javax.mail.FetchProfile;
+import javax.mail.Folder;
+import javax.mail.Message;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class PagingProviderEmailDelegateTestCase {
+
+  private static final int EMAILS = 5;
+  private static final int PAGE_SIZE = 2;
+
+  private final ExecutorService readAheadExecutor = newSingleThreadExecutor();
+  private final ExecutorService closeExecutor = newSingleThreadExecutor();
+  private MailboxAccessConfiguration configuration;
+  private MailboxConnection connection;
+  private Folder folder;
+  private Scheduler scheduler;
+  private Message[] messages;
+
+  @Before
+  public void setUp() throws Exception {
+    configuration = mock(MailboxAccessConfiguration.class);
+    when(configuration.getEnvelopeFetchProfile()).thenReturn(new FetchProfile());
+    when(configuration.getRemainingAttributesFetchProfile()).thenReturn(new FetchProfile());
+    when(configuration.parseEnvelopeAttributesFromMessage(any(), any()))
+        .thenAnswer(invocation -> attributes(invocation.getArgument(0)));
+    when(configuration.parseAttributesFromMessage(any(), any())).thenAnswer(invocation -> attributes(invocation.getArgument(0)));
+
+    messages = new Message[EMAILS];
+    for (int i = 0; i < EMAILS; i++) {
+      messages[i] = mock(Message.class);
+      when(messages[i].getMessageNumber()).thenReturn(i + 1);
+    }
+    folder = mock(Folder.class);
+    when(folder.getMessageCount()).thenReturn(EMAILS);
+    when(folder.getMessages(anyInt(), anyInt()))
+        .thenAnswer(invocation -> Arrays.copyOfRange(messages, invocation.<Integer>getArgument(0) - 1,
+                                                     invocation.<Integer>getArgument(1)));
+    connection = mock(MailboxConnection.class);
+    when(connection.getFolder(anyString(), anyInt())).thenReturn(folder);
+
+    scheduler = mock(Scheduler.class);
+    doAnswer(invocation -> {
+      readAheadExecutor.execute(invocation.getArgument(0));
+      return null;
+    }).when(scheduler).execute(any());
+  }
+
+  @After
+  public void tearDown() {
+    readAheadExecutor.shutdownNow();
+    closeExecutor.shutdownNow();
+  }
+
+  @Test
+  public void pagesFetchedAheadAreReturnedInOrder() throws Exception {
+    PagingProviderEmailDelegate<BaseEmailAttributes> provider = createProvider().readAhead(2, scheduler);
+
+    assertThat(listAll(provider), contains(5, 4, 3, 2, 1));
+  }
+
+  @Test
+  public void pagesFetchedAheadAreTheSameAsPagesFetchedWhenRequested() throws Exception {
+    List<Integer> requested = listAll(createProvider());
+
+    assertThat(listAll(createProvider().readAhead(1, scheduler)), is(equalTo(requested)));
+  }
+
+  @Test
+  public void emailsOfPagesThatWereNotRequestedAreNotDeleted() throws Exception {
+    List<BaseEmailAttributes> deleted = new ArrayList<>();
+    PagingProviderEmailDelegate<BaseEmailAttributes> provider =
+        new PagingProviderEmailDelegate<>(configuration, "INBOX", null, PAGE_SIZE, 0, -1, true,
+                                          (deleteConnection, emails) -> deleted.addAll(emails), null,
+                                          mock(MailboxAccessConfigOverrides.class))
+            .readAhead(2, scheduler);
+
+    assertThat(numbers(provider.getPage(connection)), contains(5, 4));
+    // Waits until the following pages were fetched ahead.
+    verify(folder, timeout(5000)).getMessages(1, 1);
+    provider.close(connection);
+
+    assertThat(deleted.stream().map(BaseEmailAttributes::getNumber).collect(toList()), contains(5, 4));
+  }
+
+  @Test
+  public void closeWaitsForThePageBeingFetchedAhead() throws Exception {
+    CountDownLatch fetching = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    when(folder.getMessages(2, 3)).thenAnswer(invocation -> {
+      fetching.countDown();
+      release.await();
+      return Arrays.copyOfRange(messages, 1, 3);
+    });
+    PagingProviderEmailDelegate<BaseEmailAttributes> provider = createProvider().readAhead(2, scheduler);
+
+    assertThat(numbers(provider.getPage(connection)), contains(5, 4));
+    assertThat(fetching.await(5, SECONDS), is(true));
+    Future<?> close = closeExecutor.submit(() -> {
+      provider.close(connection);
+      return null;
+    });
+    try {
+      close.get(200, MILLISECONDS);
+      fail("The provider should not be closed while a page is being fetched ahead");
+    } catch (TimeoutException e) {
+      verify(connection, never()).closeFolder(true);
+    }
+
+    release.countDown();
+    close.get(5, SECONDS);
+    InOrder inOrder = inOrder(folder, connection, scheduler);
+    inOrder.verify(folder).getMessages(2, 3);
+    inOrder.verify(scheduler).stop();
+    inOrder.verify(connection).closeFolder(true);
+    // The page that follows is not fetched once the provider is closed.
+    verify(folder, never()).getMessages(1, 1);
+  }
+
+  private PagingProviderEmailDelegate<BaseEmailAttributes> createProvider() {
+    return new PagingProviderEmailDelegate<>(configuration, "INBOX", null, PAGE_SIZE, 0, -1, false, null, null,
+                                             mock(MailboxAccessConfigOverrides.class));
+  }
+
+  private List<Integer> listAll(PagingProviderEmailDelegate<BaseEmailAttributes> provider) throws Exception {
+    List<Integer> numbers = new ArrayList<>();
+    List<Result<StoredEmailContent, BaseEmailAttributes>> page = provider.getPage(connection);
+    while (!page.isEmpty()) {
+      numbers.addAll(numbers(page));
+      page = provider.getPage(connection);
+    }
+    provider.close(connection);
+    return numbers;
+  }
+
+  private List<Integer> numbers(List<Result<StoredEmailContent, BaseEmailAttributes>> page) {
+    return page.stream().map(email -> email.getAttributes().get().getNumber()).collect(toList());
+  }
+
+  private BaseEmailAttributes attributes(Message message) {
+    BaseEmailAttributes attributes = mock(BaseEmailAttributes.class);
+    int number = message.getMessageNumber();
+    when(attributes.getNumber()).thenReturn(number);
+    return attributes;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.commands;
+
+import static javax.mail.Flags.Flag.DELETED;
+import static javax.mail.Folder.READ_WRITE;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+
+import javax.mail.Flags;
+import javax.mail.Folder;
+import javax.mail.Message;
+
+import com.sun.mail.imap.IMAPFolder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SetFlagCommandTestCase {
+
+  private static final String FOLDER = "INBOX";
+
+  private final SetFlagCommand setFlagCommand = new SetFlagCommand();
+  private MailboxConnection connection;
+
+  @Before
+  public void setUp() {
+    connection = mock(MailboxConnection.class);
+  }
+
+  @Test
+  public void emailsAreFlaggedByUidsWithASingleCommand() throws Exception {
+    IMAPFolder folder = mock(IMAPFolder.class);
+    when(connection.getFolder(FOLDER, READ_WRITE)).thenReturn(folder);
+    Message first = mock(Message.class);
+    Message second = mock(Message.class);
+    long[] uids = {3, 4, 7};
+    when(folder.getMessagesByUID(uids)).thenReturn(new Message[] {first, null, second});
+
+    Message[] flagged = setFlagCommand.setByUIDs(connection, FOLDER, DELETED, uids);
+
+    assertThat(flagged, arrayContaining(first, second));
+    verify(folder).setFlags(flagged, new Flags(DELETED), true);
+    verify(first, never()).setFlag(any(), anyBoolean());
+    verify(second, never()).setFlag(any(), anyBoolean());
+  }
+
+  @Test
+  public void noEmailsToFlagByUids() {
+    assertThat(setFlagCommand.setByUIDs(connection, FOLDER, DELETED, new long[0]), emptyArray());
+    verify(connection, never()).getFolder(anyString(), anyInt());
+  }
+
+  @Test
+  public void emailsAreFlaggedByNumbersWithASingleCall() throws Exception {
+    Folder folder = mock(Folder.class);
+    when(connection.getFolder(FOLDER, READ_WRITE)).thenReturn(folder);
+    int[] numbers = {1, 2, 5};
+
+    setFlagCommand.setByNumbers(connection, FOLDER, DELETED, numbers);
+
+    verify(folder).setFlags(numbers, new Flags(DELETED), true);
+    verify(folder, never()).getMessage(anyInt());
+  }
+
+  @Test
+  public void noEmailsToFlagByNumbers() {
+    setFlagCommand.setByNumbers(connection, FOLDER, DELETED, new int[0]);
+    verify(connection, never()).getFolder(anyString(), eq(READ_WRITE));
+  }
+}
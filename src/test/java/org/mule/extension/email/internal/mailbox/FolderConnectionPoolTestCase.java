@@ -0,0 +1,119 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mule.runtime.api.connection.ConnectionValidationResult.failure;
+import static org.mule.runtime.api.connection.ConnectionValidationResult.success;
+
+import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import javax.mail.Folder;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FolderConnectionPoolTestCase {
+
+  private static final String FOLDER = "INBOX";
+
+  private ConnectionProvider<MailboxConnection> connectionProvider;
+  private MailboxConnection connection;
+  private Folder folder;
+  private FolderConnectionPool pool;
+
+  @Before
+  public void setUp() throws Exception {
+    folder = mock(Folder.class);
+    connection = mock(MailboxConnection.class);
+    when(connection.getFolder(anyString(), anyInt())).thenReturn(folder);
+    when(connection.validate()).thenReturn(success());
+    connectionProvider = mock(ConnectionProvider.class);
+    when(connectionProvider.connect()).thenReturn(connection);
+
+    // Runs the submitted tasks right away, in the calling thread.
+    Scheduler scheduler = mock(Scheduler.class);
+    when(scheduler.submit(any(Callable.class))).thenAnswer(invocation -> {
+      FutureTask<?> task = new FutureTask<>(invocation.<Callable<?>>getArgument(0));
+      task.run();
+      return task;
+    });
+    pool = new FolderConnectionPool(connectionProvider, 2, scheduler);
+  }
+
+  @Test
+  public void taskRunsOverTheOpenedFolder() throws Exception {
+    assertThat(pool.submit(FOLDER, openedFolder -> openedFolder).get(), is(sameInstance(folder)));
+  }
+
+  @Test
+  public void releasedConnectionsAreReused() throws Exception {
+    pool.submit(FOLDER, openedFolder -> null).get();
+    pool.submit(FOLDER, openedFolder -> null).get();
+
+    verify(connectionProvider, times(1)).connect();
+    verify(connectionProvider, never()).disconnect(connection);
+  }
+
+  @Test
+  public void invalidConnectionsAreDiscarded() throws Exception {
+    when(connection.validate()).thenReturn(failure("Connection lost", new Exception()));
+    pool.submit(FOLDER, openedFolder -> null).get();
+
+    verify(connectionProvider).disconnect(connection);
+  }
+
+  @Test
+  public void disposeDisconnectsIdleConnections() throws Exception {
+    pool.submit(FOLDER, openedFolder -> null).get();
+    pool.dispose();
+
+    verify(connectionProvider).disconnect(connection);
+  }
+
+  @Test
+  public void connectionReleasedAfterDisposeIsDisconnected() throws Exception {
+    pool.submit(FOLDER, openedFolder -> {
+      pool.dispose();
+      return null;
+    }).get();
+
+    verify(connectionProvider, times(1)).disconnect(connection);
+  }
+
+  @Test
+  public void taskSubmittedAfterDisposeFails() throws Exception {
+    pool.dispose();
+    Future<Object> result = pool.submit(FOLDER, openedFolder -> null);
+
+    try {
+      result.get();
+      fail("The task should have failed");
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), is(instanceOf(IllegalStateException.class)));
+    }
+    verify(connectionProvider, never()).connect();
+  }
+}
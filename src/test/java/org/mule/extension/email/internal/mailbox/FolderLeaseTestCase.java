@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class FolderLeaseTestCase {
+
+  private final AtomicInteger opened = new AtomicInteger(0);
+  private final AtomicInteger closed = new AtomicInteger(0);
+  private final FolderLease lease = new FolderLease(opened::incrementAndGet, closed::incrementAndGet);
+
+  @Test
+  public void opensOnFirstAcquireAndClosesOnLastRelease() {
+    FolderLease.Handle first = lease.acquire();
+    FolderLease.Handle second = lease.acquire();
+    assertThat(opened.get(), is(1));
+
+    first.release();
+    assertThat(closed.get(), is(0));
+    assertThat(lease.isHeld(), is(true));
+
+    second.release();
+    assertThat(closed.get(), is(1));
+    assertThat(lease.isHeld(), is(false));
+  }
+
+  @Test
+  public void releasingTwiceHasNoEffect() {
+    FolderLease.Handle first = lease.acquire();
+    FolderLease.Handle second = lease.acquire();
+    first.release();
+    first.release();
+    assertThat(lease.isHeld(), is(true));
+    assertThat(closed.get(), is(0));
+    second.release();
+    assertThat(closed.get(), is(1));
+  }
+
+  @Test
+  public void switchFolderReopensWhenHeld() {
+    AtomicInteger changes = new AtomicInteger(0);
+    FolderLease.Handle handle = lease.acquire();
+    lease.switchFolder(changes::incrementAndGet);
+    assertThat(changes.get(), is(1));
+    assertThat(closed.get(), is(1));
+    assertThat(opened.get(), is(2));
+    handle.release();
+    assertThat(closed.get(), is(2));
+  }
+
+  @Test
+  public void switchFolderDoesNotOpenWhenNotHeld() {
+    lease.acquire().release();
+    lease.switchFolder(() -> {
+    });
+    assertThat(opened.get(), is(1));
+    assertThat(closed.get(), is(1));
+  }
+
+  @Test
+  public void concurrentAcquireAndRelease() throws Exception {
+    FolderLease.Handle held = lease.acquire();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < 1000; j++) {
+          lease.acquire().release();
+        }
+      });
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertThat(opened.get(), is(1));
+    assertThat(closed.get(), is(0));
+    held.release();
+    assertThat(closed.get(), is(1));
+  }
+}
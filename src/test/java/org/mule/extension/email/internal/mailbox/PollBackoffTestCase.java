@@ -0,0 +1,90 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class PollBackoffTestCase {
+
+  private static final long PERIOD = 10;
+
+  private long now = 0;
+
+  private final PollBackoff backoff = new PollBackoff(80, () -> now);
+
+  @Test
+  public void pollsOnEveryTriggerWhileActive() {
+    assertThat(trigger(), is(true));
+    backoff.activity();
+    assertThat(trigger(), is(true));
+    backoff.activity();
+    assertThat(trigger(), is(true));
+  }
+
+  @Test
+  public void idlePollsDoubleTheIntervalUpToTheMaximum() {
+    trigger();
+    trigger();
+    backoff.backOff();
+    assertThat(backoff.getInterval(), is(20L));
+    assertThat(trigger(), is(false));
+    assertThat(trigger(), is(true));
+    backoff.backOff();
+    backoff.backOff();
+    backoff.backOff();
+    assertThat(backoff.getInterval(), is(80L));
+  }
+
+  @Test
+  public void activityRestoresTheMinimumInterval() {
+    trigger();
+    trigger();
+    backoff.backOff();
+    backoff.backOff();
+    backoff.activity();
+    assertThat(trigger(), is(true));
+    assertThat(backoff.getInterval(), is(0L));
+  }
+
+  @Test
+  public void backPressureOnManyEmailsBacksOffOncePerPoll() {
+    trigger();
+    trigger();
+    backoff.backPressureApplied();
+    backoff.backPressureApplied();
+    backoff.backPressureApplied();
+    assertThat(backoff.getInterval(), is(0L));
+    backoff.pollCompleted(true);
+    assertThat(backoff.getInterval(), is(20L));
+  }
+
+  @Test
+  public void backPressureOnlyAffectsThePollItWasAppliedOn() {
+    trigger();
+    trigger();
+    backoff.backPressureApplied();
+    backoff.pollCompleted(true);
+    backoff.pollCompleted(true);
+    assertThat(backoff.getInterval(), is(0L));
+  }
+
+  @Test
+  public void pollWithoutNewEmailsBacksOff() {
+    trigger();
+    trigger();
+    backoff.pollCompleted(false);
+    assertThat(backoff.getInterval(), is(20L));
+  }
+
+  private boolean trigger() {
+    now += PERIOD;
+    return backoff.tryPoll();
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.emptyArray;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.api.predicate.BaseEmailPredicateBuilder;
+import org.mule.extension.email.internal.mailbox.StagedEmailMatcher.StagedEmail;
+import org.mule.extension.email.internal.mailbox.imap.IMAPConfiguration;
+
+import java.util.List;
+
+import javax.mail.FetchProfile;
+import javax.mail.Folder;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+
+import com.sun.mail.imap.IMAPFolder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class StagedEmailMatcherTestCase {
+
+  private final FetchProfile envelopeProfile = new FetchProfile();
+  private final FetchProfile attributesProfile = new FetchProfile();
+
+  private MailboxAccessConfiguration configuration;
+  private Folder folder;
+  private Message accepted;
+  private Message rejected;
+  private BaseEmailAttributes acceptedEnvelope;
+  private BaseEmailAttributes rejectedEnvelope;
+  private BaseEmailAttributes acceptedAttributes;
+  private StagedEmailMatcher matcher;
+
+  @Before
+  public void setUp() {
+    envelopeProfile.add(FetchProfile.Item.ENVELOPE);
+    attributesProfile.add(FetchProfile.Item.ENVELOPE);
+    attributesProfile.add(IMAPFolder.FetchProfileItem.HEADERS);
+
+    folder = mock(Folder.class);
+    accepted = mock(Message.class);
+    rejected = mock(Message.class);
+    acceptedEnvelope = mock(BaseEmailAttributes.class);
+    rejectedEnvelope = mock(BaseEmailAttributes.class);
+    acceptedAttributes = mock(BaseEmailAttributes.class);
+
+    configuration = mock(MailboxAccessConfiguration.class);
+    when(configuration.getEnvelopeFetchProfile()).thenReturn(envelopeProfile);
+    when(configuration.getAttributesFetchProfile()).thenReturn(attributesProfile);
+    when(configuration.getRemainingAttributesFetchProfile()).thenCallRealMethod();
+    when(configuration.parseEnvelopeAttributesFromMessage(accepted, folder)).thenReturn(acceptedEnvelope);
+    when(configuration.parseEnvelopeAttributesFromMessage(rejected, folder)).thenReturn(rejectedEnvelope);
+    when(configuration.parseAttributesFromMessage(accepted, folder)).thenReturn(acceptedAttributes);
+
+    BaseEmailPredicateBuilder matcherBuilder = mock(BaseEmailPredicateBuilder.class);
+    when(matcherBuilder.buildEnvelopePredicate()).thenReturn(attributes -> attributes == acceptedEnvelope);
+    matcher = new StagedEmailMatcher(configuration, matcherBuilder);
+  }
+
+  @Test
+  public void onlyTheMissingDataOfTheCandidatesIsFetched() throws Exception {
+    matcher.prefetch(folder, new Message[] {rejected, accepted});
+
+    ArgumentCaptor<Message[]> messages = ArgumentCaptor.forClass(Message[].class);
+    ArgumentCaptor<FetchProfile> profiles = ArgumentCaptor.forClass(FetchProfile.class);
+    verify(folder, times(2)).fetch(messages.capture(), profiles.capture());
+    assertThat(messages.getAllValues().get(0), arrayContaining(rejected, accepted));
+    assertThat(profiles.getAllValues().get(0), is(sameInstance(envelopeProfile)));
+    assertThat(messages.getAllValues().get(1), arrayContaining(accepted));
+    assertThat(profiles.getAllValues().get(1).getItems(), arrayContaining(IMAPFolder.FetchProfileItem.HEADERS));
+  }
+
+  @Test
+  public void nothingElseIsFetchedWhenTheEnvelopeHasAllTheData() throws Exception {
+    attributesProfile.add(FetchProfile.Item.ENVELOPE);
+    envelopeProfile.add(IMAPFolder.FetchProfileItem.HEADERS);
+
+    matcher.prefetch(folder, new Message[] {rejected, accepted});
+
+    verify(folder, times(1)).fetch(any(), any());
+  }
+
+  @Test
+  public void eachEnvelopeIsParsedOnceAndOnlyCandidatesAreParsedCompletely() {
+    List<StagedEmail<BaseEmailAttributes>> stagedEmails = matcher.prefetch(folder, new Message[] {rejected, accepted});
+
+    assertThat(stagedEmails.get(0).getEnvelope(), is(sameInstance(rejectedEnvelope)));
+    assertThat(matcher.match(stagedEmails.get(0), folder), is(nullValue()));
+    assertThat(matcher.match(stagedEmails.get(1), folder), is(sameInstance(acceptedAttributes)));
+    verify(configuration, times(1)).parseEnvelopeAttributesFromMessage(accepted, folder);
+    verify(configuration, times(1)).parseEnvelopeAttributesFromMessage(rejected, folder);
+    verify(configuration, never()).parseAttributesFromMessage(rejected, folder);
+  }
+
+  @Test
+  public void emailsAreStagedWhenTheBulkFetchFails() throws Exception {
+    doThrow(new MessagingException("Fetch failed")).when(folder).fetch(any(), any());
+
+    List<StagedEmail<BaseEmailAttributes>> stagedEmails = matcher.prefetch(folder, new Message[] {rejected, accepted});
+
+    assertThat(matcher.match(stagedEmails.get(1), folder), is(sameInstance(acceptedAttributes)));
+  }
+
+  @Test
+  public void imapFetchesOnlyTheHeadersAfterTheEnvelope() {
+    IMAPConfiguration imapConfiguration = new IMAPConfiguration();
+    setInternalState(imapConfiguration, "prefetchHeaders", true);
+    assertThat(imapConfiguration.getRemainingAttributesFetchProfile().getItems(),
+               arrayContaining(IMAPFolder.FetchProfileItem.HEADERS));
+
+    setInternalState(imapConfiguration, "prefetchHeaders", false);
+    assertThat(imapConfiguration.getRemainingAttributesFetchProfile().getItems(), is(emptyArray()));
+  }
+}
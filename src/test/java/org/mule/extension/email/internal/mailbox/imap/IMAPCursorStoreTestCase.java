@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.mule.extension.email.internal.mailbox.PollStateStore;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.api.store.ObjectStoreSettings;
+
+import java.io.Serializable;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class IMAPCursorStoreTestCase {
+
+  private static final String FOLDER = "INBOX";
+  private static final String KEY = "shard:cursor:" + FOLDER;
+
+  private ObjectStore<Serializable> objectStore;
+  private IMAPCursorStore cursorStore;
+
+  @Before
+  @SuppressWarnings("unchecked")
+  public void setUp() {
+    objectStore = mock(ObjectStore.class);
+    ObjectStoreManager objectStoreManager = mock(ObjectStoreManager.class);
+    when(objectStoreManager.<ObjectStore<Serializable>>getOrCreateObjectStore(anyString(), any(ObjectStoreSettings.class)))
+        .thenReturn(objectStore);
+    PollStateStore pollStateStore = new PollStateStore(objectStoreManager, "flow");
+    cursorStore = new IMAPCursorStore(() -> pollStateStore, key -> "shard:" + key);
+  }
+
+  @Test
+  public void storedCursorIsLoaded() throws Exception {
+    when(objectStore.contains(KEY)).thenReturn(true);
+    when(objectStore.retrieve(KEY)).thenReturn("1:10");
+
+    IMAPPollCursor cursor = cursorStore.load(FOLDER);
+    assertThat(cursor.getUidValidity(), is(1L));
+    assertThat(cursor.getLastUid(), is(10L));
+  }
+
+  @Test
+  public void cursorIsOnlyStoredWhenItChanged() throws Exception {
+    when(objectStore.contains(KEY)).thenReturn(true);
+    when(objectStore.retrieve(KEY)).thenReturn("1:10");
+    IMAPPollCursor cursor = cursorStore.load(FOLDER);
+
+    cursorStore.store(cursor);
+    verify(objectStore, never()).store(anyString(), any());
+
+    cursor.advance(11L);
+    cursorStore.store(cursor);
+    cursorStore.store(cursor);
+    verify(objectStore, times(1)).store(KEY, cursor.serialize());
+  }
+
+  @Test
+  public void cursorWithoutUidValidityIsNotStored() throws Exception {
+    cursorStore.store(cursorStore.load(FOLDER));
+    verify(objectStore, never()).store(anyString(), any());
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class IMAPPollCursorTestCase {
+
+  private static final String FOLDER = "INBOX";
+
+  @Test
+  public void serializeAndParse() {
+    IMAPPollCursor cursor = new IMAPPollCursor(FOLDER);
+    cursor.reset(1234L, 56L);
+    IMAPPollCursor parsed = IMAPPollCursor.parse(FOLDER, cursor.serialize());
+    assertThat(parsed.getUidValidity(), is(1234L));
+    assertThat(parsed.getLastUid(), is(56L));
+    assertThat(parsed.hasPosition(), is(true));
+  }
+
+  @Test
+  public void parseCorruptedValue() {
+    IMAPPollCursor parsed = IMAPPollCursor.parse(FOLDER, "not-a-cursor");
+    assertThat(parsed.hasUidValidity(), is(false));
+    assertThat(parsed.hasPosition(), is(false));
+  }
+
+  @Test
+  public void advanceOnlyMovesForward() {
+    IMAPPollCursor cursor = new IMAPPollCursor(FOLDER);
+    cursor.reset(1L);
+    cursor.advance(10L);
+    cursor.advance(5L);
+    assertThat(cursor.getLastUid(), is(10L));
+  }
+
+  @Test
+  public void resetDropsPosition() {
+    IMAPPollCursor cursor = IMAPPollCursor.parse(FOLDER, "1:10");
+    cursor.reset(2L);
+    assertThat(cursor.getUidValidity(), is(2L));
+    assertThat(cursor.hasPosition(), is(false));
+  }
+
+  @Test
+  public void resumePositionIsSerialized() {
+    IMAPPollCursor cursor = IMAPPollCursor.parse(FOLDER, "1:10");
+    cursor.resumeAfter(25L);
+    IMAPPollCursor parsed = IMAPPollCursor.parse(FOLDER, cursor.serialize());
+    assertThat(parsed.getLastUid(), is(10L));
+    assertThat(parsed.getResumeUid(), is(25L));
+    assertThat(parsed.getScanPosition(), is(25L));
+  }
+
+  @Test
+  public void clearResumeGoesBackToLastUid() {
+    IMAPPollCursor cursor = IMAPPollCursor.parse(FOLDER, "1:10:25");
+    cursor.clearResume();
+    assertThat(cursor.hasResume(), is(false));
+    assertThat(cursor.getScanPosition(), is(10L));
+    assertThat(cursor.serialize(), is("1:10"));
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.api.store.ObjectStoreSettings;
+
+import java.util.HashMap;
+
+import com.sun.mail.imap.IMAPFolder;
+import com.sun.mail.imap.protocol.Status;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IMAPPollingSourceTestCase {
+
+  private static final String FOLDER = "INBOX";
+
+  private IMAPPollingSource source;
+  private MailboxConnection connection;
+  private IMAPFolder folder;
+
+  @Before
+  public void setUp() throws Exception {
+    ObjectStoreManager objectStoreManager = mock(ObjectStoreManager.class);
+    when(objectStoreManager.getOrCreateObjectStore(anyString(), any(ObjectStoreSettings.class)))
+        .thenReturn(mock(ObjectStore.class));
+    ComponentLocation location = mock(ComponentLocation.class);
+    when(location.getRootContainerName()).thenReturn("listener-flow");
+
+    source = new IMAPPollingSource();
+    setInternalState(source, "watermarkEnabled", true);
+    setInternalState(source, "folderStates", new HashMap<>());
+    setInternalState(source, "shard", new IMAPUIDShard(1, 0));
+    setInternalState(source, "objectStoreManager", objectStoreManager);
+    setInternalState(source, "location", location);
+
+    folder = mock(IMAPFolder.class);
+    when(folder.getFullName()).thenReturn(FOLDER);
+    connection = mock(MailboxConnection.class);
+    when(connection.lookupFolder(FOLDER)).thenReturn(folder);
+  }
+
+  @Test
+  public void pollIsSkippedWhenStatusDidNotChange() throws Exception {
+    returnStatus(11, 10, 1, 100);
+    assertThat(source.hasNewEmails(connection, FOLDER), is(true));
+    source.pollCompleted(FOLDER);
+
+    returnStatus(11, 10, 1, 100);
+    assertThat(source.hasNewEmails(connection, FOLDER), is(false));
+  }
+
+  @Test
+  public void pollIsNotSkippedWhenNewEmailsArrived() throws Exception {
+    returnStatus(11, 10, 1, 100);
+    source.hasNewEmails(connection, FOLDER);
+    source.pollCompleted(FOLDER);
+
+    returnStatus(12, 11, 1, 100);
+    assertThat(source.hasNewEmails(connection, FOLDER), is(true));
+  }
+
+  @Test
+  public void pollIsNotSkippedWhenUidValidityChanged() throws Exception {
+    returnStatus(11, 10, 1, 100);
+    source.hasNewEmails(connection, FOLDER);
+    source.pollCompleted(FOLDER);
+
+    returnStatus(11, 10, 2, 100);
+    assertThat(source.hasNewEmails(connection, FOLDER), is(true));
+  }
+
+  @Test
+  public void pollIsSkippedWhenOnlyFlagsChanged() throws Exception {
+    returnStatus(11, 10, 1, 100);
+    source.hasNewEmails(connection, FOLDER);
+    source.pollCompleted(FOLDER);
+
+    returnStatus(11, 10, 1, 105);
+    assertThat(source.hasNewEmails(connection, FOLDER), is(false));
+  }
+
+  @Test
+  public void pollIsNotSkippedWhenStatusIsNotSupported() throws Exception {
+    when(folder.doCommand(any())).thenReturn(null);
+    source.hasNewEmails(connection, FOLDER);
+    source.pollCompleted(FOLDER);
+
+    assertThat(source.hasNewEmails(connection, FOLDER), is(true));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void listenerWithoutLocationFailsToStart() throws Exception {
+    new IMAPPollingSource().doStart();
+  }
+
+  private void returnStatus(long uidNext, int messages, long uidValidity, long highestModSeq) throws Exception {
+    Status status = mock(Status.class);
+    status.uidnext = uidNext;
+    status.total = messages;
+    status.uidvalidity = uidValidity;
+    status.highestmodseq = highestModSeq;
+    when(folder.doCommand(any())).thenReturn(status);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mule.extension.email.api.predicate.EmailFilterPolicy.INCLUDE;
+import static org.mule.extension.email.api.predicate.EmailFilterPolicy.REQUIRE;
+
+import org.mule.extension.email.api.predicate.IMAPEmailPredicateBuilder;
+
+import java.util.Collections;
+
+import javax.mail.search.AndTerm;
+import javax.mail.search.HeaderTerm;
+import javax.mail.search.SearchTerm;
+import javax.mail.search.SizeTerm;
+import javax.mail.search.SubjectTerm;
+
+import org.junit.Test;
+
+public class IMAPRemoteSearchTermTestCase {
+
+  @Test
+  public void subjectIsPushedDownWithoutFlags() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setSubjectRegex("^Report .*");
+    SubjectTerm term = (SubjectTerm) new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().get();
+    assertThat(term.getPattern(), is("Report "));
+  }
+
+  @Test
+  public void subjectWithInlineFlagsIsNotPushedDown() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setSubjectRegex("(?x)Monthly Report");
+    assertThat(new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().isPresent(), is(false));
+  }
+
+  @Test
+  public void includedFlagsAddNoTerm() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setSeen(INCLUDE);
+    assertThat(new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().isPresent(), is(false));
+    builder.setAnswered(REQUIRE);
+    builder.setSubjectRegex("Report");
+    assertThat(new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().get(), instanceOf(AndTerm.class));
+  }
+
+  @Test
+  public void headerAndSizeArePushedDown() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setHeaderRegexes(Collections.singletonMap("X-Tenant-Id", "^acme-.*"));
+    builder.setMaxSize(1024);
+    SearchTerm[] terms = ((AndTerm) new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().get()).getTerms();
+    assertThat(terms.length, is(2));
+    assertThat(((HeaderTerm) terms[0]).getHeaderName(), is("X-Tenant-Id"));
+    assertThat(((HeaderTerm) terms[0]).getPattern(), is("acme-"));
+  }
+
+  @Test
+  public void sizeBoundsAtTheIntExtremesAreNotPushedDown() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setMinSize(Integer.MIN_VALUE);
+    builder.setMaxSize(Integer.MAX_VALUE);
+    assertThat(new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().isPresent(), is(false));
+  }
+
+  @Test
+  public void sizeBoundsAreInclusive() {
+    IMAPEmailPredicateBuilder builder = new IMAPEmailPredicateBuilder();
+    builder.setMinSize(10);
+    builder.setMaxSize(20);
+    SearchTerm[] terms = ((AndTerm) new IMAPRemoteSearchTerm(builder).getRemoteSearchTerm().get()).getTerms();
+    assertThat(((SizeTerm) terms[0]).getNumber(), is(9));
+    assertThat(((SizeTerm) terms[1]).getNumber(), is(21));
+  }
+}
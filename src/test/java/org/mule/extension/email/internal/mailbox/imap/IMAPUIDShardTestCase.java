@@ -0,0 +1,45 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.imap;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class IMAPUIDShardTestCase {
+
+  @Test
+  public void everyUidIsOwnedByExactlyOneShard() {
+    IMAPUIDShard[] shards = {new IMAPUIDShard(3, 0), new IMAPUIDShard(3, 1), new IMAPUIDShard(3, 2)};
+    for (long uid = 1; uid <= 30; uid++) {
+      int owners = 0;
+      for (IMAPUIDShard shard : shards) {
+        owners += shard.owns(uid) ? 1 : 0;
+      }
+      assertThat(owners, is(1));
+    }
+  }
+
+  @Test
+  public void singleShardOwnsEverything() {
+    IMAPUIDShard shard = new IMAPUIDShard(1, 0);
+    assertThat(shard.isPartitioned(), is(false));
+    assertThat(shard.owns(7L), is(true));
+    assertThat(shard.qualify("cursor:INBOX"), is("cursor:INBOX"));
+  }
+
+  @Test
+  public void keysAreQualifiedByShard() {
+    assertThat(new IMAPUIDShard(4, 1).qualify("cursor:INBOX"), is("cursor:INBOX#1/4"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void indexOutOfRange() {
+    new IMAPUIDShard(2, 2);
+  }
+}
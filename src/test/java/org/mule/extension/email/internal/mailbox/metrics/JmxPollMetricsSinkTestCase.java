@@ -0,0 +1,57 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static java.lang.management.ManagementFactory.getPlatformMBeanServer;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import javax.management.MBeanServer;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class JmxPollMetricsSinkTestCase {
+
+  private static final String LISTENER = "listener-flow";
+
+  private final MBeanServer mBeanServer = getPlatformMBeanServer();
+  private final JmxPollMetricsSink firstAppSink = new JmxPollMetricsSink("first-app");
+  private final JmxPollMetricsSink secondAppSink = new JmxPollMetricsSink("second-app");
+
+  @After
+  public void tearDown() {
+    firstAppSink.dispose(LISTENER);
+    secondAppSink.dispose(LISTENER);
+  }
+
+  @Test
+  public void listenersOfDifferentAppsWithTheSameNameDoNotCollide() throws Exception {
+    firstAppSink.publish(poll());
+    secondAppSink.publish(poll());
+    secondAppSink.publish(poll());
+
+    assertThat(mBeanServer.getAttribute(firstAppSink.getObjectName(LISTENER), "Polls"), is(1L));
+    assertThat(mBeanServer.getAttribute(secondAppSink.getObjectName(LISTENER), "Polls"), is(2L));
+  }
+
+  @Test
+  public void disposeOnlyUnregistersTheListenerOfItsApp() throws Exception {
+    firstAppSink.publish(poll());
+    secondAppSink.publish(poll());
+    secondAppSink.dispose(LISTENER);
+
+    assertThat(mBeanServer.isRegistered(firstAppSink.getObjectName(LISTENER)), is(true));
+    assertThat(mBeanServer.isRegistered(secondAppSink.getObjectName(LISTENER)), is(false));
+  }
+
+  private PollMetrics poll() {
+    PollMetrics metrics = new PollMetrics(LISTENER);
+    metrics.completed();
+    return metrics;
+  }
+}
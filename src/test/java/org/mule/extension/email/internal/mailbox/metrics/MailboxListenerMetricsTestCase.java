@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class MailboxListenerMetricsTestCase {
+
+  private static final String LISTENER = "flow";
+
+  private final MailboxListenerMetrics listenerMetrics = new MailboxListenerMetrics();
+
+  @Test
+  public void accumulatePolls() {
+    listenerMetrics.add(poll(10, 3, 1024));
+    listenerMetrics.add(poll(5, 2, 512));
+    assertThat(listenerMetrics.getPolls(), is(2L));
+    assertThat(listenerMetrics.getMessagesScanned(), is(15L));
+    assertThat(listenerMetrics.getPredicateMatches(), is(5L));
+    assertThat(listenerMetrics.getDispatched(), is(5L));
+    assertThat(listenerMetrics.getBytesFetched(), is(1536L));
+    assertThat(listenerMetrics.getSkippedPolls(), is(0L));
+  }
+
+  @Test
+  public void accumulateSkippedPolls() {
+    PollMetrics skipped = new PollMetrics(LISTENER);
+    skipped.skipped("there are no new emails");
+    listenerMetrics.add(skipped);
+    assertThat(listenerMetrics.getPolls(), is(0L));
+    assertThat(listenerMetrics.getSkippedPolls(), is(1L));
+    assertThat(listenerMetrics.getLastSkipReason(), is("there are no new emails"));
+  }
+
+  @Test
+  public void accumulateFailedPolls() {
+    listenerMetrics.add(poll(10, 3, 1024));
+    PollMetrics failed = poll(5, 0, 0);
+    failed.failed();
+    listenerMetrics.add(failed);
+    assertThat(listenerMetrics.getPolls(), is(2L));
+    assertThat(listenerMetrics.getFailedPolls(), is(1L));
+  }
+
+  @Test
+  public void reset() {
+    listenerMetrics.add(poll(10, 3, 1024));
+    listenerMetrics.reset();
+    assertThat(listenerMetrics.getPolls(), is(0L));
+    assertThat(listenerMetrics.getMessagesScanned(), is(0L));
+  }
+
+  private PollMetrics poll(int scanned, int matched, long bytes) {
+    PollMetrics metrics = new PollMetrics(LISTENER);
+    metrics.folderOpened(1000);
+    metrics.messagesScanned(scanned);
+    for (int i = 0; i < matched; i++) {
+      metrics.predicateMatched();
+      metrics.dispatched(1000);
+    }
+    metrics.contentFetched(bytes);
+    metrics.completed();
+    return metrics;
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.mailbox.pop3;
+
+import static javax.mail.Folder.READ_WRITE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mule.runtime.extension.api.runtime.source.PollContext.PollItemStatus.ACCEPTED;
+import static org.powermock.reflect.Whitebox.setInternalState;
+
+import org.mule.extension.email.api.StoredEmailContent;
+import org.mule.extension.email.api.attributes.BaseEmailAttributes;
+import org.mule.extension.email.api.predicate.POP3EmailPredicateBuilder;
+import org.mule.extension.email.internal.mailbox.MailboxAccessConfigOverrides;
+import org.mule.extension.email.internal.mailbox.MailboxAccessConfiguration;
+import org.mule.extension.email.internal.mailbox.MailboxConnection;
+import org.mule.runtime.api.component.location.ComponentLocation;
+import org.mule.runtime.api.connection.ConnectionProvider;
+import org.mule.runtime.api.store.ObjectStore;
+import org.mule.runtime.api.store.ObjectStoreManager;
+import org.mule.runtime.api.store.ObjectStoreSettings;
+import org.mule.runtime.extension.api.exception.ModuleException;
+import org.mule.runtime.extension.api.runtime.operation.Result;
+import org.mule.runtime.extension.api.runtime.source.PollContext;
+import org.mule.runtime.extension.api.runtime.source.PollContext.PollItem;
+import org.mule.runtime.extension.api.runtime.source.SourceCallbackContext;
+import org.mule.runtime.extension.api.runtime.source.SourceResult;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import javax.mail.FetchProfile;
+import javax.mail.Message;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+
+import com.sun.mail.pop3.POP3Folder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class POP3PollingSourceTestCase {
+
+  private final Map<String, Serializable> storedState = new HashMap<>();
+  private ObjectStoreManager objectStoreManager;
+  private POP3Folder folder;
+  private Message first;
+  private Message second;
+  private Message third;
+  private SourceCallbackContext callbackContext;
+
+  @Before
+  public void setUp() throws Exception {
+    ObjectStore<Serializable> store = mock(ObjectStore.class);
+    when(store.contains(anyString())).thenAnswer(invocation -> storedState.containsKey(invocation.<String>getArgument(0)));
+    when(store.retrieve(anyString())).thenAnswer(invocation -> storedState.get(invocation.<String>getArgument(0)));
+    when(store.remove(anyString())).thenAnswer(invocation -> storedState.remove(invocation.<String>getArgument(0)));
+    when(store.allKeys()).thenAnswer(invocation -> new ArrayList<>(storedState.keySet()));
+    doAnswer(invocation -> storedState.put(invocation.getArgument(0), invocation.getArgument(1))).when(store)
+        .store(anyString(), any());
+    objectStoreManager = mock(ObjectStoreManager.class);
+    when(objectStoreManager.<ObjectStore<Serializable>>getOrCreateObjectStore(anyString(), any(ObjectStoreSettings.class)))
+        .thenReturn(store);
+
+    folder = mock(POP3Folder.class);
+    first = mockMessage("uid-1");
+    second = mockMessage("uid-2");
+    third = mockMessage("uid-3");
+    when(folder.getMessages()).thenReturn(new Message[] {first, second, third});
+  }
+
+  @Test
+  public void dispatchedEmailsAreNotPolledAgainAfterRestart() throws Exception {
+    POP3PollingSource source = startSource();
+    source.getMessages(folder);
+    source.emailAccepted(attributes("uid-1"));
+    source.emailAccepted(attributes("uid-2"));
+
+    assertThat(startSource().getMessages(folder), arrayContaining(third));
+  }
+
+  @Test
+  public void filteredOutEmailsAreNotRemembered() throws Exception {
+    startSource().getMessages(folder);
+
+    assertThat(storedState.keySet(), empty());
+    assertThat(startSource().getMessages(folder), arrayContaining(first, second, third));
+  }
+
+  @Test
+  public void emailsNoLongerOnTheServerAreForgotten() throws Exception {
+    POP3PollingSource source = startSource();
+    source.getMessages(folder);
+    source.emailAccepted(attributes("uid-1"));
+    source.emailAccepted(attributes("uid-2"));
+
+    when(folder.getMessages()).thenReturn(new Message[] {second, third});
+    assertThat(source.getMessages(folder), arrayContaining(third));
+    assertThat(storedState.keySet(), contains("uidl:INBOX:uid-2"));
+  }
+
+  @Test
+  public void failedPollBacksOff() throws Exception {
+    MailboxConnection connection = mock(MailboxConnection.class);
+    when(connection.getFolder("INBOX", READ_WRITE)).thenThrow(new IllegalStateException("Connection lost"));
+    POP3PollingSource source = new POP3PollingSource();
+    setInternalState(source, "maxPollInterval", 60L);
+    setInternalState(source, "maxPollIntervalUnit", TimeUnit.SECONDS);
+    startSource(source, connection);
+    PollContext<StoredEmailContent, BaseEmailAttributes> pollContext = mock(PollContext.class);
+
+    try {
+      source.poll(pollContext);
+      fail("The poll should fail when the folder can not be opened");
+    } catch (IllegalStateException e) {
+      // The next poll is skipped, since the failed poll backed off.
+      source.poll(pollContext);
+      verify(connection, times(1)).getFolder("INBOX", READ_WRITE);
+    }
+  }
+
+  @Test
+  public void truncatedPollResumesAfterTheLastScannedEmail() throws Exception {
+    Message fourth = mockMessage("uid-4");
+    when(folder.getMessages()).thenReturn(new Message[] {first, second, third, fourth});
+    Map<Message, BaseEmailAttributes> envelopes = new HashMap<>();
+    envelopes.put(first, attributes("uid-1", "old Email"));
+    envelopes.put(second, attributes("uid-2", "old Email"));
+    envelopes.put(third, attributes("uid-3", "old Email"));
+    envelopes.put(fourth, attributes("uid-4", "new Email"));
+    MailboxAccessConfiguration config = mock(MailboxAccessConfiguration.class);
+    when(config.getEnvelopeFetchProfile()).thenReturn(new FetchProfile());
+    when(config.getRemainingAttributesFetchProfile()).thenReturn(new FetchProfile());
+    when(config.parseEnvelopeAttributesFromMessage(any(), any()))
+        .thenAnswer(invocation -> envelopes.get(invocation.<Message>getArgument(0)));
+    when(config.parseAttributesFromMessage(any(), any()))
+        .thenAnswer(invocation -> envelopes.get(invocation.<Message>getArgument(0)));
+    MailboxConnection connection = mock(MailboxConnection.class);
+    when(connection.getFolder("INBOX", READ_WRITE)).thenReturn(folder);
+
+    POP3PollingSource source = new POP3PollingSource();
+    setInternalState(source, "config", config);
+    setInternalState(source, "overrides", mock(MailboxAccessConfigOverrides.class));
+    setInternalState(source, "maxMessagesPerPoll", 2);
+    setInternalState(source, "pop3Matcher", new POP3EmailPredicateBuilder().setSubjectRegex("new Email"));
+    startSource(source, connection);
+
+    // None of the first two emails match, so the email that matches is only reached if the second poll resumes after them.
+    assertThat(pollIds(source), empty());
+    assertThat(pollIds(source), contains("uid-4"));
+    assertThat(storedState.get("resume:INBOX"), is("uid-4"));
+  }
+
+  @Test
+  public void lazyContentIsReadFromThePollSession() throws Exception {
+    MailboxConnection connection = mockPollConnection();
+    POP3PollingSource source = startLazySource(connection);
+    StoredEmailContent content = pollSingleEmail(source).getOutput();
+
+    verify(connection, never()).closeFolder(anyBoolean());
+    assertThat(content.getBody().getValue(), is("Hello"));
+    verify(connection, never()).lookupFolder(anyString());
+  }
+
+  @Test
+  public void lazyContentCanNotBeReadOnceTheEmailIsProcessed() throws Exception {
+    MailboxConnection connection = mockPollConnection();
+    POP3PollingSource source = startLazySource(connection);
+    StoredEmailContent content = pollSingleEmail(source).getOutput();
+
+    SourceResult sourceResult = mock(SourceResult.class);
+    when(sourceResult.getSourceCallbackContext()).thenReturn(callbackContext);
+    source.onTerminate(sourceResult);
+    verify(connection).closeFolder(false);
+
+    try {
+      content.getBody();
+      fail("The content should not be readable once the poll session is closed");
+    } catch (ModuleException e) {
+      // A second session would be rejected by the server while the maildrop is locked, so it is never opened.
+      verify(connection, never()).lookupFolder(anyString());
+    }
+  }
+
+  private MailboxConnection mockPollConnection() throws Exception {
+    MimeMessage message = new MimeMessage((Session) null);
+    message.setText("Hello");
+    message.saveChanges();
+    when(folder.getUID(message)).thenReturn("uid-1");
+    when(folder.getMessages()).thenReturn(new Message[] {message});
+    when(folder.getMessageCount()).thenReturn(1);
+    when(folder.getMessage(1)).thenReturn(message);
+
+    AtomicBoolean open = new AtomicBoolean(true);
+    when(folder.isOpen()).thenAnswer(invocation -> open.get());
+    MailboxConnection connection = mock(MailboxConnection.class);
+    when(connection.getFolder("INBOX", READ_WRITE)).thenReturn(folder);
+    doAnswer(invocation -> {
+      open.set(false);
+      return null;
+    }).when(connection).closeFolder(anyBoolean());
+    return connection;
+  }
+
+  private POP3PollingSource startLazySource(MailboxConnection connection) throws Exception {
+    BaseEmailAttributes attributes = attributes("uid-1");
+    when(attributes.getNumber()).thenReturn(1);
+    MailboxAccessConfiguration config = mock(MailboxAccessConfiguration.class);
+    when(config.getEnvelopeFetchProfile()).thenReturn(new FetchProfile());
+    when(config.getRemainingAttributesFetchProfile()).thenReturn(new FetchProfile());
+    when(config.parseEnvelopeAttributesFromMessage(any(), any())).thenReturn(attributes);
+    when(config.parseAttributesFromMessage(any(), any())).thenReturn(attributes);
+
+    POP3PollingSource source = new POP3PollingSource();
+    setInternalState(source, "config", config);
+    setInternalState(source, "overrides", mock(MailboxAccessConfigOverrides.class));
+    setInternalState(source, "fetchContentLazily", true, POP3PollingSource.class);
+    return startSource(source, connection);
+  }
+
+  private Result<StoredEmailContent, BaseEmailAttributes> pollSingleEmail(POP3PollingSource source) {
+    Map<String, Object> variables = new HashMap<>();
+    callbackContext = mock(SourceCallbackContext.class);
+    doAnswer(invocation -> variables.put(invocation.getArgument(0), invocation.getArgument(1))).when(callbackContext)
+        .addVariable(anyString(), any());
+    when(callbackContext.getVariable(anyString()))
+        .thenAnswer(invocation -> Optional.ofNullable(variables.get(invocation.<String>getArgument(0))));
+
+    Map<String, Result<StoredEmailContent, BaseEmailAttributes>> results = new HashMap<>();
+    PollItem<StoredEmailContent, BaseEmailAttributes> item = mock(PollItem.class);
+    when(item.getSourceCallbackContext()).thenReturn(callbackContext);
+    doAnswer(invocation -> results.put("uid-1", invocation.getArgument(0))).when(item).setResult(any());
+    PollContext<StoredEmailContent, BaseEmailAttributes> pollContext = mock(PollContext.class);
+    when(pollContext.accept(any())).thenAnswer(invocation -> {
+      invocation.<Consumer<PollItem<StoredEmailContent, BaseEmailAttributes>>>getArgument(0).accept(item);
+      return ACCEPTED;
+    });
+
+    source.poll(pollContext);
+    assertThat(results.size(), is(1));
+    return results.get("uid-1");
+  }
+
+  private List<String> pollIds(POP3PollingSource source) {
+    List<String> ids = new ArrayList<>();
+    PollItem<StoredEmailContent, BaseEmailAttributes> item = mock(PollItem.class);
+    doAnswer(invocation -> ids.add(invocation.getArgument(0))).when(item).setId(anyString());
+    PollContext<StoredEmailContent, BaseEmailAttributes> pollContext = mock(PollContext.class);
+    when(pollContext.accept(any())).thenAnswer(invocation -> {
+      invocation.<Consumer<PollItem<StoredEmailContent, BaseEmailAttributes>>>getArgument(0).accept(item);
+      return ACCEPTED;
+    });
+    source.poll(pollContext);
+    return ids;
+  }
+
+  private POP3PollingSource startSource() throws Exception {
+    return startSource(new POP3PollingSource(), mock(MailboxConnection.class));
+  }
+
+  private POP3PollingSource startSource(POP3PollingSource source, MailboxConnection connection) throws Exception {
+    ConnectionProvider<MailboxConnection> connectionProvider = mock(ConnectionProvider.class);
+    when(connectionProvider.connect()).thenReturn(connection);
+    ComponentLocation location = mock(ComponentLocation.class);
+    when(location.getRootContainerName()).thenReturn("pop3-listener-flow");
+
+    setInternalState(source, "folder", "INBOX");
+    setInternalState(source, "connectionProvider", connectionProvider);
+    setInternalState(source, "objectStoreManager", objectStoreManager);
+    setInternalState(source, "location", location);
+    source.doStart();
+    return source;
+  }
+
+  private Message mockMessage(String uid) throws Exception {
+    Message message = mock(Message.class);
+    when(folder.getUID(message)).thenReturn(uid);
+    return message;
+  }
+
+  private BaseEmailAttributes attributes(String uid) {
+    BaseEmailAttributes attributes = mock(BaseEmailAttributes.class);
+    when(attributes.getId()).thenReturn(uid);
+    return attributes;
+  }
+
+  private BaseEmailAttributes attributes(String uid, String subject) {
+    BaseEmailAttributes attributes = attributes(uid);
+    when(attributes.getSubject()).thenReturn(subject);
+    return attributes;
+  }
+}
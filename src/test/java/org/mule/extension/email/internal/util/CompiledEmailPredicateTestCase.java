@@ -0,0 +1,55 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.util;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.COMPARISONS;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.FLAGS;
+import static org.mule.extension.email.internal.util.CompiledEmailPredicate.Cost.REGEX;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CompiledEmailPredicateTestCase {
+
+  private final List<String> evaluated = new ArrayList<>();
+
+  @Test
+  public void evaluatesCheapestConditionsFirst() {
+    CompiledEmailPredicate predicate = CompiledEmailPredicate.builder()
+        .add(REGEX, attributes -> evaluate("regex", true))
+        .add(FLAGS, attributes -> evaluate("flags", true))
+        .add(COMPARISONS, attributes -> evaluate("dates", true))
+        .build();
+    assertThat(predicate.test(null), is(true));
+    assertThat(evaluated, is(asList("flags", "dates", "regex")));
+  }
+
+  @Test
+  public void stopsOnFirstUnmetCondition() {
+    CompiledEmailPredicate predicate = CompiledEmailPredicate.builder()
+        .add(REGEX, attributes -> evaluate("regex", true))
+        .add(COMPARISONS, attributes -> evaluate("dates", false))
+        .build();
+    assertThat(predicate.test(null), is(false));
+    assertThat(evaluated, is(asList("dates")));
+  }
+
+  @Test
+  public void noConditionsAcceptsEverything() {
+    assertThat(CompiledEmailPredicate.builder().build().test(null), is(true));
+  }
+
+  private boolean evaluate(String condition, boolean result) {
+    evaluated.add(condition);
+    return result;
+  }
+}
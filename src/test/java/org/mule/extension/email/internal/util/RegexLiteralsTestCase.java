@@ -0,0 +1,60 @@
+/*
+ * Copyright 2023 Salesforce, Inc. All rights reserved.
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package org.mule.extension.email.internal.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mule.extension.email.internal.util.RegexLiterals.requiredLiteral;
+
+import org.junit.Test;
+
+public class RegexLiteralsTestCase {
+
+  @Test
+  public void literalOfPlainText() {
+    assertThat(requiredLiteral("Invoice"), is("Invoice"));
+    assertThat(requiredLiteral("^Invoice$"), is("Invoice"));
+  }
+
+  @Test
+  public void literalSkipsOptionalAndClassCharacters() {
+    assertThat(requiredLiteral("Invoices? #[0-9]+ received"), is(" received"));
+    assertThat(requiredLiteral("order\\.\\d+@shop\\.com"), is("@shop.com"));
+  }
+
+  @Test
+  public void noLiteralForAlternativesOrWildcards() {
+    assertThat(requiredLiteral("invoice|receipt"), is(nullValue()));
+    assertThat(requiredLiteral(".*"), is(nullValue()));
+    assertThat(requiredLiteral(null), is(nullValue()));
+  }
+
+  @Test
+  public void noLiteralWithInlineFlags() {
+    assertThat(requiredLiteral("(?i)urgent: .*"), is(nullValue()));
+    assertThat(requiredLiteral("(?x)a b"), is(nullValue()));
+    assertThat(requiredLiteral("invoice (?i:urgent)"), is(nullValue()));
+    assertThat(requiredLiteral("(?-i)Urgent"), is(nullValue()));
+  }
+
+  @Test
+  public void literalSkipsTheCodeOfEscapedCharacters() {
+    assertThat(requiredLiteral("foo\\x41bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\x{41}bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\u0041bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\0101bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\cAbar"), is("foo"));
+  }
+
+  @Test
+  public void literalSkipsTheNameOfEscapes() {
+    assertThat(requiredLiteral("foo\\k<name>bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\p{Lu}bar"), is("foo"));
+    assertThat(requiredLiteral("foo\\12bar"), is("foo"));
+  }
+}
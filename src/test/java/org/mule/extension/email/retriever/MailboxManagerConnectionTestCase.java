@@ -13,6 +13,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.anyString;
@@ -63,9 +64,11 @@ public class MailboxManagerConnectionTestCase {
 
   private static final String RECENT_FOLDER = "Recent";
   private static final String ERROR_FOLDER = "Error";
+  private static final String NESTED_FOLDER = "INBOX/Nested";
 
   private Store store;
   private MailboxConnection connection;
+  private TestFolder nested;
 
   @Before
   public void setUpTestConnection() throws Exception {
@@ -89,6 +92,9 @@ public class MailboxManagerConnectionTestCase {
     TestFolder recent = new TestFolder(store, RECENT_FOLDER);
     doReturn(recent).when(store).getFolder(RECENT_FOLDER);
 
+    nested = new TestFolder(store, "Nested", NESTED_FOLDER);
+    doReturn(nested).when(store).getFolder(NESTED_FOLDER);
+
     TestFolder errorFolder = new FolderThrowsErrorAtOpening(store, ERROR_FOLDER);
     doReturn(errorFolder).when(store).getFolder(ERROR_FOLDER);
 
@@ -115,6 +121,26 @@ public class MailboxManagerConnectionTestCase {
     getFolder();
   }
 
+  @Test
+  public void getSameNestedFolder() throws MessagingException {
+    Folder folder = connection.getFolder(NESTED_FOLDER, READ_WRITE);
+    assertThat(connection.getFolder(NESTED_FOLDER, READ_WRITE), is(sameInstance(folder)));
+    assertThat(nested.getOpenCount(), is(1));
+    assertThat(nested.isOpen(), is(true));
+  }
+
+  @Test
+  public void folderKeptOpenIsNotSelectedAgainBetweenPolls() throws MessagingException {
+    Folder folder = connection.getFolder(NESTED_FOLDER, READ_WRITE);
+    for (int poll = 0; poll < 3; poll++) {
+      // Each poll checks the folder through a lookup, which must not affect the selected one, and then reads it.
+      connection.lookupFolder(INBOX_FOLDER);
+      assertThat(connection.getFolder(NESTED_FOLDER, READ_WRITE), is(sameInstance(folder)));
+    }
+    assertThat(nested.getOpenCount(), is(1));
+    assertThat(nested.getCloseCount(), is(0));
+  }
+
   @Test
   public void changeFolderMode() throws MessagingException {
     getFolder();
@@ -163,14 +189,30 @@ public class MailboxManagerConnectionTestCase {
   private class TestFolder extends Folder {
 
     private final String folderName;
+    private final String fullName;
     private boolean isOpen;
+    private int openCount;
+    private int closeCount;
 
     TestFolder(Store store, String folderName) {
+      this(store, folderName, folderName);
+    }
+
+    TestFolder(Store store, String folderName, String fullName) {
       super(store);
       this.folderName = folderName;
+      this.fullName = fullName;
       this.isOpen = false;
     }
 
+    int getOpenCount() {
+      return openCount;
+    }
+
+    int getCloseCount() {
+      return closeCount;
+    }
+
     @Override
     public String getName() {
       return folderName;
@@ -178,7 +220,7 @@ public class MailboxManagerConnectionTestCase {
 
     @Override
     public String getFullName() {
-      return folderName;
+      return fullName;
     }
 
     @Override
@@ -235,6 +277,7 @@ public class MailboxManagerConnectionTestCase {
     public void open(int mode) throws MessagingException {
       this.isOpen = true;
       this.mode = mode;
+      this.openCount++;
     }
 
     @Override
@@ -243,6 +286,7 @@ public class MailboxManagerConnectionTestCase {
         throw new MessagingException("Cannot close: Folder is already closed");
       }
       this.isOpen = false;
+      this.closeCount++;
     }
 
     @Override